@@ -0,0 +1,37 @@
+package com.game.chess.logic;
+
+/**
+ * Fixed positions shared by the benchmarks, one per game phase.
+ * 
+ * Positions are written in FEN.
+ */
+final class BenchmarkPositions {
+
+	// Ruy Lopez after 3...a6, white to move
+	static final String OPENING = "r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4";
+	
+	// "Kiwipete": both sides castled-ready, many captures and pins
+	static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	
+	// Rook and pawns each
+	static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+	
+	private BenchmarkPositions() {
+	}
+	
+	/**
+	 * Build the board for a position name: "opening", "middlegame" or "endgame".
+	 */
+	static ChessBoard create(String name) {
+		switch (name) {
+			case "opening":
+				return ChessBoard.fromFen(OPENING);
+			case "middlegame":
+				return ChessBoard.fromFen(MIDDLEGAME);
+			case "endgame":
+				return ChessBoard.fromFen(ENDGAME);
+			default:
+				throw new IllegalArgumentException("Unknown position: " + name);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.game.chess.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Move legality, check detection, move generation and evaluation on the
+ * benchmark positions (white to move).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+	
+	private ChessBoard board;
+	private final ChessColor color = ChessColor.WHITE;
+	private final ChessAIAdvanced advanced = new ChessAIAdvanced();
+	private final ChessAIIntermediate intermediate = new ChessAIIntermediate();
+	private final int[] moves = new int[SearchStack.MAX_MOVES];
+	
+	@Setup
+	public void setUp() {
+		board = BenchmarkPositions.create(position);
+	}
+	
+	/**
+	 * Every from/to pair for every white piece: the work of one naive move generation.
+	 */
+	@Benchmark
+	public int isLegalMove() {
+		int legal = 0;
+		for (int from = 0; from < 64; from++) {
+			ChessPiece piece = board.getPiece(from / 8, from % 8);
+			if (piece == null || piece.getColor() != color) {
+				continue;
+			}
+			for (int to = 0; to < 64; to++) {
+				if (board.isLegalMove(from / 8, from % 8, to / 8, to % 8, color)) {
+					legal++;
+				}
+			}
+		}
+		return legal;
+	}
+	
+	@Benchmark
+	public boolean isInCheck() {
+		return board.isInCheck(color);
+	}
+	
+	@Benchmark
+	public boolean hasAnyLegalMove() {
+		return board.hasAnyLegalMove(color);
+	}
+	
+	@Benchmark
+	public int generateMoves() {
+		return advanced.generateAllLegalMoves(board, color, moves);
+	}
+	
+	@Benchmark
+	public int evaluatePositionAdvanced() {
+		return advanced.evaluatePosition(board, color);
+	}
+	
+	@Benchmark
+	public int evaluatePositionIntermediate() {
+		return intermediate.evaluatePosition(board, color);
+	}
+}
@@ -0,0 +1,65 @@
+package com.game.chess.logic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One full move decision of each AI level on the benchmark positions.
+ * A single advanced search takes long enough to be timed on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ChooseMoveBenchmark {
+
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+	
+	@Param({"beginner", "intermediate", "advanced"})
+	public String level;
+	
+	private ChessBoard board;
+	private BiFunction<ChessBoard, ChessColor, ChessMove> ai;
+	
+	@Setup
+	public void setUp() {
+		board = BenchmarkPositions.create(position);
+		switch (level) {
+			case "beginner":
+				ai = new ChessAI()::chooseMove;
+				break;
+			case "intermediate":
+				ai = new ChessAIIntermediate()::chooseMove;
+				break;
+			case "advanced":
+				ChessAIAdvanced advanced = new ChessAIAdvanced();
+				// Measure the search itself, not whatever tables happen to be installed
+				advanced.setTablebase(null);
+				advanced.setTranspositionTable(null);
+				ai = advanced::chooseMove;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown level: " + level);
+		}
+	}
+	
+	@Benchmark
+	public ChessMove chooseMove() {
+		return ai.apply(board, ChessColor.WHITE);
+	}
+}
@@ -0,0 +1,323 @@
+package com.game.chess.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.ChessColor;
+import com.game.chess.logic.ChessGameEngine;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.GameStatus;
+import com.game.chess.logic.SearchInfo;
+import com.game.chess.logic.SearchListener;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Live engine analysis of the game position: an evaluation bar and the best
+ * line found so far. The advanced AI searches the position on a background
+ * thread until it is stopped or the position changes; its results are shown
+ * at most ten times a second, whatever rate they arrive at. The transposition
+ * table is supplied by the window, which shares it with the hint search.
+ */
+public class AnalysisPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int REFRESH_MILLIS = 100;
+	private static final int MAX_LINE_MOVES = 8;
+
+	/**
+	 * What to show, from White's point of view. Built on the search thread so
+	 * that the EDT only copies it into the labels.
+	 */
+	private static final class Snapshot {
+		final int generation;
+		final int depth;
+		final ChessMove bestMove;
+		final int whiteScore; // centipawns
+		final int whiteMateIn; // moves, 0 if no mate
+		final String text;
+		final String line;
+
+		Snapshot(int generation, int depth, ChessMove bestMove, int whiteScore, int whiteMateIn, String text,
+				String line) {
+			this.generation = generation;
+			this.depth = depth;
+			this.bestMove = bestMove;
+			this.whiteScore = whiteScore;
+			this.whiteMateIn = whiteMateIn;
+			this.text = text;
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Vertical bar, filled with white from the bottom in proportion to White's
+	 * expected score.
+	 */
+	private static final class EvalBar extends JComponent {
+		private static final long serialVersionUID = 1L;
+
+		private double whiteShare = 0.5;
+
+		EvalBar() {
+			setPreferredSize(new Dimension(22, 150));
+		}
+
+		void setWhiteShare(double whiteShare) {
+			if (whiteShare != this.whiteShare) {
+				this.whiteShare = whiteShare;
+				repaint();
+			}
+		}
+
+		@Override
+		protected void paintComponent(Graphics g) {
+			int white = (int) Math.round(getHeight() * whiteShare);
+			g.setColor(new Color(50, 50, 50));
+			g.fillRect(0, 0, getWidth(), getHeight() - white);
+			g.setColor(new Color(245, 245, 245));
+			g.fillRect(0, getHeight() - white, getWidth(), white);
+			g.setColor(new Color(100, 100, 120));
+			g.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
+		}
+	}
+
+	private final ChessGameEngine engine;
+	private final TranspositionTable transpositionTable;
+	private final EvalBar evalBar = new EvalBar();
+	private final JLabel scoreLabel = new JLabel("Analysis off");
+	private final JLabel lineLabel = new JLabel(" ");
+	private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> showLatest());
+
+	// Search thread state; a search only publishes while its generation is current
+	private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+	private volatile Snapshot best; // Newest result, kept after it has been shown
+	private volatile int generation;
+	private ChessAIAdvanced ai;
+	private ExecutorService searchThread;
+	private GameStatus analysedStatus;
+	private boolean enabled;
+
+	public AnalysisPanel(ChessGameEngine engine, TranspositionTable transpositionTable) {
+		this.engine = engine;
+		this.transpositionTable = transpositionTable;
+
+		setLayout(new BorderLayout(8, 0));
+		setBackground(new Color(245, 245, 250));
+		setBorder(BorderFactory.createCompoundBorder(
+			BorderFactory.createLineBorder(new Color(100, 100, 120), 2),
+			BorderFactory.createEmptyBorder(8, 8, 8, 8)
+		));
+
+		scoreLabel.setFont(new Font("Arial", Font.BOLD, 16));
+		scoreLabel.setForeground(new Color(50, 50, 80));
+		lineLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+		lineLabel.setForeground(new Color(60, 60, 60));
+		lineLabel.setVerticalAlignment(SwingConstants.TOP);
+
+		JPanel textPanel = new JPanel(new BorderLayout(0, 5));
+		textPanel.setOpaque(false);
+		textPanel.add(scoreLabel, BorderLayout.NORTH);
+		textPanel.add(lineLabel, BorderLayout.CENTER);
+
+		add(evalBar, BorderLayout.WEST);
+		add(textPanel, BorderLayout.CENTER);
+		setPreferredSize(new Dimension(220, 170));
+	}
+
+	/**
+	 * Turn analysis on or off. While on, the panel follows the game through
+	 * {@link #positionChanged(GameStatus)}.
+	 */
+	public void setAnalysisEnabled(boolean enabled) {
+		if (enabled == this.enabled) {
+			return;
+		}
+		this.enabled = enabled;
+		if (enabled) {
+			if (ai == null) {
+				ai = new ChessAIAdvanced();
+				ai.setTranspositionTable(transpositionTable);
+				ai.setSearchDepth(ChessAIAdvanced.MAX_SEARCH_DEPTH);
+				searchThread = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "analysis");
+					thread.setDaemon(true);
+					// Leave the EDT and the game's own AI the CPU they need
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				});
+			}
+			refreshTimer.start();
+			positionChanged(engine.getStatus());
+		} else {
+			stopSearch();
+			refreshTimer.stop();
+			analysedStatus = null;
+			evalBar.setWhiteShare(0.5);
+			scoreLabel.setText("Analysis off");
+			lineLabel.setText(" ");
+		}
+	}
+
+	public boolean isAnalysisEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start analysing the position {@code status} describes, stopping the search
+	 * of the previous one. Nothing happens if that position is already being
+	 * analysed, so this can be called whenever the status is read.
+	 */
+	public void positionChanged(GameStatus status) {
+		if (!enabled || status == analysedStatus) {
+			return;
+		}
+		analysedStatus = status;
+		stopSearch();
+		latest.set(null);
+
+		if (status.isGameOver()) {
+			evalBar.setWhiteShare(status.isCheckmate() ? (status.getSideToMove() == ChessColor.WHITE ? 0 : 1) : 0.5);
+			scoreLabel.setText(status.isCheckmate() ? "Checkmate" : "Draw");
+			lineLabel.setText(" ");
+			return;
+		}
+
+		ChessBoard position = new ChessBoard();
+		position.copyFrom(engine.getBoard());
+		ChessColor side = status.getSideToMove();
+		int searchGeneration = generation;
+		scoreLabel.setText("Thinking...");
+		lineLabel.setText(" ");
+		searchThread.execute(() -> search(position, side, searchGeneration));
+	}
+
+	/**
+	 * The best move analysis has found in the position {@code status} describes,
+	 * if it has searched that position to at least {@code minDepth}; else null.
+	 */
+	public ChessMove getAnalysedMove(GameStatus status, int minDepth) {
+		Snapshot result = best;
+		if (!enabled || status != analysedStatus || result == null || result.generation != generation
+				|| result.depth < minDepth) {
+			return null;
+		}
+		return result.bestMove;
+	}
+
+	/**
+	 * Stop analysing for good, e.g. when the game is left.
+	 */
+	public void shutdown() {
+		setAnalysisEnabled(false);
+		if (searchThread != null) {
+			searchThread.shutdown();
+		}
+	}
+
+	private void stopSearch() {
+		generation++;
+		if (ai != null) {
+			ai.stop();
+		}
+	}
+
+	// Runs on the search thread
+	private void search(ChessBoard position, ChessColor side, int searchGeneration) {
+		if (searchGeneration != generation) {
+			return;
+		}
+		boolean[] published = {false};
+		ChessBoard scratch = new ChessBoard();
+		SearchListener listener = info -> {
+			// A stop requested just before chooseMove started is cleared by it, so stop again here
+			if (searchGeneration != generation) {
+				ai.stop();
+				return;
+			}
+			best = snapshot(searchGeneration, info, position, side, scratch);
+			latest.set(best);
+			published[0] = true;
+		};
+		ai.addSearchListener(listener);
+		try {
+			ChessMove move = ai.chooseMove(position, side);
+			// Mates in one are played without a search, so without any report
+			if (!published[0] && move != null && searchGeneration == generation) {
+				scratch.copyFrom(position);
+				String san = move.toSan(scratch);
+				int mateIn = side == ChessColor.WHITE ? 1 : -1;
+				best = new Snapshot(searchGeneration, 1, move, 0, mateIn, side == ChessColor.WHITE ? "M1" : "-M1", san + "#");
+				latest.set(best);
+			}
+		} finally {
+			ai.removeSearchListener(listener);
+		}
+	}
+
+	private static Snapshot snapshot(int generation, SearchInfo info, ChessBoard position, ChessColor side, ChessBoard scratch) {
+		int sign = side == ChessColor.WHITE ? 1 : -1;
+		int whiteScore = sign * info.getScore();
+		int whiteMateIn = sign * info.getMateInMoves();
+
+		String text;
+		if (whiteMateIn != 0) {
+			text = (whiteMateIn > 0 ? "M" : "-M") + Math.abs(whiteMateIn);
+		} else {
+			text = String.format("%+.2f", whiteScore / 100.0);
+		}
+		text += "  (depth " + info.getDepth() + ")";
+
+		// The line in algebraic notation, playing it out on a scratch board
+		StringBuilder line = new StringBuilder();
+		scratch.copyFrom(position);
+		List<ChessMove> pv = info.getPrincipalVariation();
+		ChessMove bestMove = pv.isEmpty() ? null : pv.get(0);
+		for (int i = 0; i < pv.size() && i < MAX_LINE_MOVES; i++) {
+			ChessMove move = pv.get(i);
+			if (scratch.getSideToMove() == ChessColor.WHITE) {
+				line.append(scratch.getFullmoveNumber()).append(". ");
+			} else if (i == 0) {
+				line.append(scratch.getFullmoveNumber()).append("... ");
+			}
+			line.append(move.toSan(scratch)).append(' ');
+			scratch.applyMove(move);
+		}
+		return new Snapshot(generation, info.getDepth(), bestMove, whiteScore, whiteMateIn, text, line.toString().trim());
+	}
+
+	// Timer tick on the EDT: show the newest result, if there is one
+	private void showLatest() {
+		Snapshot snapshot = latest.getAndSet(null);
+		// A search that was stopped may still have reported after the position changed
+		if (snapshot == null || snapshot.generation != generation) {
+			return;
+		}
+		double whiteShare;
+		if (snapshot.whiteMateIn != 0) {
+			whiteShare = snapshot.whiteMateIn > 0 ? 1 : 0;
+		} else {
+			// Expected score for White, as in the Elo formula
+			whiteShare = 1 / (1 + Math.pow(10, -snapshot.whiteScore / 400.0));
+		}
+		evalBar.setWhiteShare(whiteShare);
+		scoreLabel.setText(snapshot.text);
+		lineLabel.setText("<html>" + snapshot.line + "</html>");
+	}
+}
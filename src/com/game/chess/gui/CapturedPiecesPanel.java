@@ -4,26 +4,39 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
+import com.game.chess.logic.ChessBoard;
 import com.game.chess.logic.ChessColor;
 import com.game.chess.logic.ChessGameEngine;
-import com.game.chess.logic.ChessPiece;
+import com.game.chess.logic.ChessPieceType;
 import com.game.chess.resources.ChessImageLoader;
 
 public class CapturedPiecesPanel extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 	
+	static final int ICON_SIZE = 30;
+	private static final ChessColor[] COLORS = ChessColor.values();
+	private static final ChessPieceType[] TYPES = ChessPieceType.values();
+	
 	private final ChessGameEngine engine;
 	private final JPanel whiteCapturedPanel;
 	private final JPanel blackCapturedPanel;
+	private final JLabel materialLabel;
+	
+	// Icons and shown labels by color ordinal * TYPES.length + type ordinal
+	private final ImageIcon[] icons = new ImageIcon[COLORS.length * TYPES.length];
+	private final List<List<JLabel>> shownLabels = new ArrayList<>();
+	private int shownBalance = 0;
 	
 	public CapturedPiecesPanel(ChessGameEngine engine) {
 		this.engine = engine;
@@ -41,7 +54,14 @@ public class CapturedPiecesPanel extends JPanel {
 		titleLabel.setForeground(new Color(50, 50, 80));
 		titleLabel.setAlignmentX(CENTER_ALIGNMENT);
 		add(titleLabel);
-		add(Box.createRigidArea(new Dimension(0, 15)));
+		add(Box.createRigidArea(new Dimension(0, 5)));
+		
+		materialLabel = new JLabel(materialText(0));
+		materialLabel.setFont(new Font("Arial", Font.PLAIN, 13));
+		materialLabel.setForeground(new Color(60, 60, 60));
+		materialLabel.setAlignmentX(CENTER_ALIGNMENT);
+		add(materialLabel);
+		add(Box.createRigidArea(new Dimension(0, 10)));
 		
 		// White pieces captured (by Black) - wrapped in panel to prevent truncation
 		JPanel whiteLabelPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
@@ -92,37 +112,60 @@ public class CapturedPiecesPanel extends JPanel {
 		
 		// Set preferred size for the whole panel
 		setPreferredSize(new Dimension(220, 500));
+		
+		for (ChessColor color : COLORS) {
+			for (ChessPieceType type : TYPES) {
+				icons[kind(color, type)] = ChessImageLoader.loadPieceIcon(type, color, ICON_SIZE);
+				shownLabels.add(new ArrayList<>());
+			}
+		}
 	}
 	
 	/**
-	 * Refresh the display of captured pieces from the current game state.
+	 * Bring the display up to date with the game's captures. Only labels for
+	 * pieces captured (or given back) since the last refresh are added or removed.
 	 */
 	public void refreshCapturedPieces() {
-		whiteCapturedPanel.removeAll();
-		blackCapturedPanel.removeAll();
-		
-		List<ChessPiece> capturedWhite = engine.getBoard().getCapturedWhitePieces();
-		List<ChessPiece> capturedBlack = engine.getBoard().getCapturedBlackPieces();
-		
-		// Display captured white pieces
-		for (ChessPiece piece : capturedWhite) {
-			JLabel pieceLabel = new JLabel(
-				ChessImageLoader.loadPieceIcon(piece.getType(), ChessColor.WHITE, 30)
-			);
-			whiteCapturedPanel.add(pieceLabel);
+		ChessBoard board = engine.getBoard();
+		for (ChessColor color : COLORS) {
+			JPanel panel = (color == ChessColor.WHITE) ? whiteCapturedPanel : blackCapturedPanel;
+			boolean changed = false;
+			for (ChessPieceType type : TYPES) {
+				int kind = kind(color, type);
+				List<JLabel> shown = shownLabels.get(kind);
+				int count = board.getCapturedCount(color, type);
+				while (shown.size() < count) {
+					JLabel pieceLabel = new JLabel(icons[kind]);
+					panel.add(pieceLabel);
+					shown.add(pieceLabel);
+					changed = true;
+				}
+				while (shown.size() > count) {
+					panel.remove(shown.remove(shown.size() - 1));
+					changed = true;
+				}
+			}
+			if (changed) {
+				panel.revalidate();
+				panel.repaint();
+			}
 		}
 		
-		// Display captured black pieces
-		for (ChessPiece piece : capturedBlack) {
-			JLabel pieceLabel = new JLabel(
-				ChessImageLoader.loadPieceIcon(piece.getType(), ChessColor.BLACK, 30)
-			);
-			blackCapturedPanel.add(pieceLabel);
+		int balance = board.getMaterialBalance();
+		if (balance != shownBalance) {
+			shownBalance = balance;
+			materialLabel.setText(materialText(balance));
 		}
-		
-		whiteCapturedPanel.revalidate();
-		whiteCapturedPanel.repaint();
-		blackCapturedPanel.revalidate();
-		blackCapturedPanel.repaint();
+	}
+	
+	private static String materialText(int balance) {
+		if (balance == 0) {
+			return "Material: even";
+		}
+		return "Material: " + (balance > 0 ? "White" : "Black") + " +" + Math.abs(balance);
+	}
+	
+	private static int kind(ChessColor color, ChessPieceType type) {
+		return color.ordinal() * TYPES.length + type.ordinal();
 	}
 }
@@ -1,13 +1,17 @@
 package com.game.chess.gui;
 
 import java.awt.Color;
-import java.awt.GridLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
-import javax.swing.JButton;
+import javax.swing.ImageIcon;
 import javax.swing.JPanel;
-import javax.swing.SwingConstants;
 
 import com.game.chess.logic.ChessBoard;
 import com.game.chess.logic.ChessColor;
@@ -16,83 +20,215 @@ import com.game.chess.logic.ChessMove;
 import com.game.chess.logic.ChessPiece;
 import com.game.chess.resources.ChessImageLoader;
 
-public class ChessBoardPanel extends JPanel implements ActionListener {
+/**
+ * The chess board as a single component: squares and pieces are painted
+ * straight from the cached piece images in one pass, and clicks are mapped to
+ * squares by arithmetic. Row 0 is drawn at the top.
+ */
+public class ChessBoardPanel extends JPanel {
 
 	private static final long serialVersionUID = -1252813890138463622L;
-	
+
+	private static final Color LIGHT = new Color(240, 217, 181);
+	private static final Color DARK = new Color(181, 136, 99);
+	private static final Color SELECTED = new Color(246, 246, 105);
+	private static final Color DESTINATION = new Color(20, 85, 30, 110);
+	private static final Color HINT = new Color(60, 130, 230, 120);
+
 	private final ChessGameEngine engine;
 	private final ChessGUIManager guiManager;
-    private final JButton[][] squares = new JButton[ChessBoard.SIZE][ChessBoard.SIZE];
 
     private int selectedRow = -1;
     private int selectedCol = -1;
+    private long highlighted; // Legal destinations of the selected piece, bit row * 8 + col
+    private long hintSquares; // From and to squares of a suggested move
+
+    // Piece icon size, following the square size up to the images' natural size
+    private int iconSize = ChessImageLoader.PIECE_SIZE;
 
     public ChessBoardPanel(ChessGameEngine engine, ChessGUIManager guiManager) {
         this.engine = engine;
         this.guiManager = guiManager;
-        setLayout(new GridLayout(ChessBoard.SIZE, ChessBoard.SIZE));
-        initSquares();
-        refreshBoard();
-    }
+        setPreferredSize(new Dimension(ChessBoard.SIZE * 80, ChessBoard.SIZE * 80));
 
-    private void initSquares() {
-        for (int row = 0; row < ChessBoard.SIZE; row++) {
-            for (int col = 0; col < ChessBoard.SIZE; col++) {
-                JButton btn = new JButton();
-                btn.setHorizontalAlignment(SwingConstants.CENTER);
-                btn.setOpaque(true);
-                btn.setBorderPainted(false);
-
-                Color light = new Color(240, 217, 181);
-                Color dark = new Color(181, 136, 99);
-                btn.setBackground(((row + col) % 2 == 0) ? light : dark);
-
-                btn.setActionCommand(row + "," + col);
-                btn.addActionListener(this);
-                squares[row][col] = btn;
-                add(btn);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int square = squareSize();
+                int col = Math.floorDiv(e.getX() - boardX(), square);
+                int row = Math.floorDiv(e.getY() - boardY(), square);
+                if (row >= 0 && row < ChessBoard.SIZE && col >= 0 && col < ChessBoard.SIZE) {
+                    squareClicked(row, col);
+                }
             }
+        });
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateIconSize();
+            }
+        });
+    }
+
+    private void updateIconSize() {
+        int size = Math.max(16, Math.min(ChessImageLoader.PIECE_SIZE, squareSize() - 8));
+        if (size != iconSize) {
+            // Icons at the old size won't be asked for again
+            ChessImageLoader.evictScaledIcons(iconSize);
+            iconSize = size;
+            repaint();
         }
     }
 
+    // The board is the largest square that fits, centered
+    private int squareSize() {
+        return Math.max(1, Math.min(getWidth(), getHeight()) / ChessBoard.SIZE);
+    }
+
+    private int boardX() {
+        return (getWidth() - squareSize() * ChessBoard.SIZE) / 2;
+    }
+
+    private int boardY() {
+        return (getHeight() - squareSize() * ChessBoard.SIZE) / 2;
+    }
+
+    /**
+     * Redraw the squares the moves since the last refresh changed. Each square is
+     * painted on its own, since a single repaint request would be widened to the
+     * rectangle around all of them.
+     */
     public void refreshBoard() {
+        clearSelection();
+        clearHint();
+        paintSquares(engine.takeChangedSquares());
+    }
+
+    /**
+     * Mark a suggested move until the next click or move.
+     */
+    public void showHint(ChessMove move) {
+        clearHint();
+        hintSquares = (1L << (move.getFromRow() * ChessBoard.SIZE + move.getFromCol()))
+                | (1L << (move.getToRow() * ChessBoard.SIZE + move.getToCol()));
+        paintSquares(hintSquares);
+    }
+
+    private void clearHint() {
+        long squares = hintSquares;
+        hintSquares = 0;
+        paintSquares(squares);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
         ChessBoard board = engine.getBoard();
+        int square = squareSize();
+        int x0 = boardX();
+        int y0 = boardY();
+        int inset = (square - iconSize) / 2;
+        ((Graphics2D) g).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
         for (int row = 0; row < ChessBoard.SIZE; row++) {
             for (int col = 0; col < ChessBoard.SIZE; col++) {
+                int x = x0 + col * square;
+                int y = y0 + row * square;
+                // Skip squares outside the area being repainted
+                if (!g.hitClip(x, y, square, square)) {
+                    continue;
+                }
+
+                if (row == selectedRow && col == selectedCol) {
+                    g.setColor(SELECTED);
+                } else {
+                    g.setColor(((row + col) % 2 == 0) ? LIGHT : DARK);
+                }
+                g.fillRect(x, y, square, square);
+                if ((hintSquares & (1L << (row * ChessBoard.SIZE + col))) != 0) {
+                    g.setColor(HINT);
+                    g.fillRect(x, y, square, square);
+                }
+
                 ChessPiece piece = board.getPiece(row, col);
-                JButton btn = squares[row][col];
                 if (piece != null) {
-                    btn.setIcon(ChessImageLoader.loadPieceIcon(piece.getType(), piece.getColor()));
-                } else {
-                    btn.setIcon(null);
+                    ImageIcon icon = ChessImageLoader.loadPieceIcon(piece.getType(), piece.getColor(), iconSize);
+                    if (icon != null) {
+                        g.drawImage(icon.getImage(), x + inset, y + inset, null);
+                    }
+                }
+
+                if ((highlighted & (1L << (row * ChessBoard.SIZE + col))) != 0) {
+                    g.setColor(DESTINATION);
+                    if (piece != null) {
+                        // A ring around pieces that can be captured
+                        int ring = Math.max(3, square / 12);
+                        for (int i = 0; i < ring; i++) {
+                            g.drawOval(x + i, y + i, square - 1 - 2 * i, square - 1 - 2 * i);
+                        }
+                    } else {
+                        int dot = square / 3;
+                        g.fillOval(x + (square - dot) / 2, y + (square - dot) / 2, dot, dot);
+                    }
                 }
             }
         }
-        revalidate();
-        repaint();
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-    	
+    private void paintSquares(long squares) {
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            paintSquare(square / ChessBoard.SIZE, square % ChessBoard.SIZE);
+        }
+    }
+
+    private void select(int row, int col) {
+        clearSelection();
+        selectedRow = row;
+        selectedCol = col;
+        // Looked up in the engine's per-position index, not worked out again
+        highlighted = engine.getStatus().getLegalDestinations(row, col);
+        paintSquare(row, col);
+        paintSquares(highlighted);
+    }
+
+    private void clearSelection() {
+        if (selectedRow != -1) {
+            paintSquare(selectedRow, selectedCol);
+            paintSquares(highlighted);
+        }
+        selectedRow = -1;
+        selectedCol = -1;
+        highlighted = 0;
+    }
+
+    private void paintSquare(int row, int col) {
+        if (!isShowing()) {
+            return;
+        }
+        int square = squareSize();
+        paintImmediately(boardX() + col * square, boardY() + row * square, square, square);
+    }
+
+    private void squareClicked(int row, int col) {
+
     	// If vs computer and it's the AI's turn, ignore all clicks
         if (engine.isVsComputer() && engine.getCurrentPlayer() == engine.getAIColor()) {
             return;
         }
-        
-        String[] parts = e.getActionCommand().split(",");
-        int row = Integer.parseInt(parts[0]);
-        int col = Integer.parseInt(parts[1]);
-
-        if (selectedRow == -1) {
-            // first click: select a piece
-            ChessPiece piece = engine.getBoard().getPiece(row, col);
-            if (piece != null && piece.getColor() == engine.getCurrentPlayer()) {
-                selectedRow = row;
-                selectedCol = col;
-                // TODO: highlight possible moves
+
+        clearHint();
+        ChessPiece clicked = engine.getBoard().getPiece(row, col);
+        if (clicked != null && clicked.getColor() == engine.getCurrentPlayer()) {
+            // first click, or another piece of our own: select it and show where it can go
+            if (row == selectedRow && col == selectedCol) {
+                clearSelection();
+            } else {
+                select(row, col);
             }
-        } else {
+        } else if (selectedRow != -1) {
             // second click: attempt move
             // Check if this is a castling move (king moves 2 squares horizontally)
             ChessPiece selectedPiece = engine.getBoard().getPiece(selectedRow, selectedCol);
@@ -103,34 +239,25 @@ public class ChessBoardPanel extends JPanel implements ActionListener {
                     isCastling = true;
                 }
             }
-            
+
+            // Destinations outside the highlighted set are illegal, no need to ask the engine
+            boolean legal = (highlighted & (1L << (row * ChessBoard.SIZE + col))) != 0;
             ChessMove move = new ChessMove(selectedRow, selectedCol, row, col, isCastling);
-            boolean ok = engine.makePlayerMove(move);
-            selectedRow = -1;
-            selectedCol = -1;
-            if (ok) {
+            clearSelection();
+            if (legal && engine.makePlayerMove(move)) {
                 refreshBoard();
                 guiManager.refreshCapturedPieces(); // Update captured pieces display
                 guiManager.updateStatusLabel(); // after player move
-                
+
                 // Check if opponent's king was captured (player won)
                 ChessColor opponentColor = engine.getAIColor() != null ? engine.getAIColor() : engine.getCurrentPlayer();
                 if (engine.getBoard().isKingCaptured(opponentColor)) {
                     guiManager.handleGameEnd(true);
                     return;
                 }
-                
-                engine.makeComputerMoveIfNeeded();
-                refreshBoard();
-                guiManager.refreshCapturedPieces(); // Update captured pieces display after AI move
-                guiManager.updateStatusLabel(); // after computer move, if any
-                
-                // Check if player's king was captured (player lost)
-                ChessColor playerColor = engine.getAIColor() != null ? engine.getAIColor().opposite() : engine.getCurrentPlayer().opposite();
-                if (engine.getBoard().isKingCaptured(playerColor)) {
-                    guiManager.handleGameEnd(false);
-                    return;
-                }
+
+                // The reply is searched in the background and played when found
+                guiManager.playComputerMoveIfNeeded();
             } else {
                 // Illegal move attempted
                 guiManager.showIllegalMoveMessage();
@@ -9,6 +9,8 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -19,20 +21,45 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JToggleButton;
 import javax.swing.SwingConstants;
 
+import com.game.chess.logic.ChessBoard;
 import com.game.chess.logic.ChessColor;
 import com.game.chess.logic.ChessGameEngine;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.GameStatus;
 import com.game.chess.logic.LeaderboardEntry;
 import com.game.chess.logic.LeaderboardManager;
+import com.game.chess.logic.TranspositionTable;
+import com.game.chess.resources.ChessImageLoader;
 
 public class ChessGUIManager extends JFrame {
 
 	private static final long serialVersionUID = 1L;
+	
+	// Analysis results at least this deep are good enough to give as a hint
+	private static final int HINT_MIN_ANALYSIS_DEPTH = 4;
+	
+	// Size of the table analysis and hints share when no hash file is configured
+	private static final int SEARCH_HASH_MB = 16;
 
     private ChessGameEngine engine;
     private ChessBoardPanel boardPanel;
     private CapturedPiecesPanel capturedPiecesPanel;
+    private AnalysisPanel analysisPanel;
+    private HintSearch hintSearch;
+    private TranspositionTable searchTable; // Shared by analysis and hints, see getSearchTable()
+    private GameStatus hintStatus; // Position a hint is being searched for, if any
+    private JButton hintButton;
+    
+    // The AI's moves are searched here, so the window stays responsive and undo can cancel them
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "computer-move");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile int computerGeneration; // Bumped to drop a computer move still being searched
     private JLabel statusLabel;
     private LeaderboardManager leaderboardManager;
     private String playerName;
@@ -62,6 +89,7 @@ public class ChessGUIManager extends JFrame {
 
     private void showModeSelectionScreen() {
         isOnGameBoard = false; // We're leaving the game board
+        stopBackgroundSearches();
         getContentPane().removeAll();
         setSize(650, 480); // Increased size to accommodate emoji buttons with text
         setLocationRelativeTo(null); // Re-center after resize
@@ -325,6 +353,12 @@ public class ChessGUIManager extends JFrame {
     }
 
     private void startGame(ChessGameEngine.AILevel aiLevel) {
+        // A game still in progress is abandoned
+        if (engine != null) {
+            engine.setGameEnded(true);
+        }
+        stopBackgroundSearches();
+        
         // Create engine first
         engine = new ChessGameEngine(aiLevel);
         
@@ -337,6 +371,11 @@ public class ChessGUIManager extends JFrame {
         // Create all components before modifying the window
         ChessBoardPanel newBoardPanel = new ChessBoardPanel(engine, this);
         CapturedPiecesPanel newCapturedPiecesPanel = new CapturedPiecesPanel(engine);
+        AnalysisPanel newAnalysisPanel = new AnalysisPanel(engine, getSearchTable());
+        
+        JPanel sidePanel = new JPanel(new BorderLayout());
+        sidePanel.add(newCapturedPiecesPanel, BorderLayout.CENTER);
+        sidePanel.add(newAnalysisPanel, BorderLayout.SOUTH);
         
         JLabel newStatusLabel = new JLabel("White to move");
         newStatusLabel.setHorizontalAlignment(SwingConstants.CENTER);
@@ -349,8 +388,23 @@ public class ChessGUIManager extends JFrame {
         resignBtn.addActionListener(e -> handleResign());
         backBtn.addActionListener(e -> handleMainMenuClick());
         
+        JButton undoBtn = new JButton("Undo");
+        JButton redoBtn = new JButton("Redo");
+        undoBtn.addActionListener(e -> handleUndo());
+        redoBtn.addActionListener(e -> handleRedo());
+        topPanel.add(undoBtn);
+        topPanel.add(redoBtn);
+        
         topPanel.add(resignBtn);
         
+        // Hints only for a human playing the AI
+        if (aiLevel != ChessGameEngine.AILevel.NONE) {
+            JButton newHintButton = new JButton("Hint");
+            newHintButton.addActionListener(e -> handleHint());
+            topPanel.add(newHintButton);
+            hintButton = newHintButton;
+        }
+        
         // Only add "Declare Draw" button in two-player mode
         if (aiLevel == ChessGameEngine.AILevel.NONE) {
             JButton drawBtn = new JButton("Declare Draw");
@@ -358,6 +412,10 @@ public class ChessGUIManager extends JFrame {
             topPanel.add(drawBtn);
         }
         
+        JToggleButton analysisBtn = new JToggleButton("Analysis");
+        analysisBtn.addActionListener(e -> newAnalysisPanel.setAnalysisEnabled(analysisBtn.isSelected()));
+        topPanel.add(analysisBtn);
+        
         topPanel.add(backBtn);
         
         // Now update the window all at once
@@ -365,13 +423,14 @@ public class ChessGUIManager extends JFrame {
         setLayout(new BorderLayout());
         
         add(newBoardPanel, BorderLayout.CENTER);
-        add(newCapturedPiecesPanel, BorderLayout.EAST);
+        add(sidePanel, BorderLayout.EAST);
         add(newStatusLabel, BorderLayout.SOUTH);
         add(topPanel, BorderLayout.NORTH);
         
         // Assign to instance variables
         boardPanel = newBoardPanel;
         capturedPiecesPanel = newCapturedPiecesPanel;
+        analysisPanel = newAnalysisPanel;
         statusLabel = newStatusLabel;
         
         isOnGameBoard = true; // We're now on the game board screen
@@ -388,12 +447,7 @@ public class ChessGUIManager extends JFrame {
         // If player chose Black, let AI make the first move as White
         // Use invokeLater to ensure UI is fully rendered first
         if (aiLevel != ChessGameEngine.AILevel.NONE && playerColor == ChessColor.BLACK) {
-            javax.swing.SwingUtilities.invokeLater(() -> {
-                engine.makeComputerMoveIfNeeded();
-                boardPanel.refreshBoard();
-                refreshCapturedPieces();
-                updateStatusLabel();
-            });
+            javax.swing.SwingUtilities.invokeLater(this::playComputerMoveIfNeeded);
         }
     }
 
@@ -402,11 +456,22 @@ public class ChessGUIManager extends JFrame {
              return;
          }
          
-         ChessColor current = engine.getCurrentPlayer();
+         // Computed once per position by the engine
+         GameStatus status = engine.getStatus();
+         if (analysisPanel != null) {
+             analysisPanel.positionChanged(status); // no-op unless the position is new
+         }
+         if (hintStatus != null && hintStatus != status) {
+             // A move was made while the hint was being worked out
+             hintSearch.cancel();
+             hintStatus = null;
+             hintButton.setEnabled(true);
+         }
+         ChessColor current = status.getSideToMove();
          String playerName = (current == ChessColor.WHITE) ? "White" : "Black";
          
          // Check game state and display appropriate warning
-         if (engine.getBoard().isCheckmate(current)) {
+         if (status.isCheckmate()) {
              statusLabel.setText("CHECKMATE! " + playerName + " has been checkmated!");
              statusLabel.setForeground(Color.RED);
              
@@ -434,7 +499,7 @@ public class ChessGUIManager extends JFrame {
              return;
          }
          
-         if (engine.getBoard().isStalemate(current)) {
+         if (status.isStalemate()) {
              statusLabel.setText("STALEMATE! " + playerName + " has no legal moves - Game is a draw!");
              statusLabel.setForeground(Color.ORANGE);
              JOptionPane.showMessageDialog(this, 
@@ -445,7 +510,21 @@ public class ChessGUIManager extends JFrame {
              return;
          }
          
-         if (engine.getBoard().isInCheck(current)) {
+         if (status.isDraw()) {
+             String reason = drawReasonText(status.getDrawReason());
+             statusLabel.setText("DRAW! " + reason);
+             statusLabel.setForeground(Color.ORANGE);
+             if (!engine.isGameEnded()) {
+                 JOptionPane.showMessageDialog(this, 
+                     reason + "\nThe game is a draw!", 
+                     "Draw", 
+                     JOptionPane.INFORMATION_MESSAGE);
+                 engine.setGameEnded(true);
+             }
+             return;
+         }
+         
+         if (status.isInCheck()) {
              statusLabel.setText("CHECK! " + playerName + " is in check - must escape!");
              statusLabel.setForeground(Color.RED);
          } else {
@@ -455,6 +534,150 @@ public class ChessGUIManager extends JFrame {
          }
 	}
 	
+	private static String drawReasonText(GameStatus.DrawReason reason) {
+		switch (reason) {
+			case THREEFOLD_REPETITION:
+				return "The same position occurred three times.";
+			case FIFTY_MOVE_RULE:
+				return "Fifty moves without a capture or pawn move.";
+			case INSUFFICIENT_MATERIAL:
+				return "Neither side has enough material to checkmate.";
+			default:
+				return "No legal moves available.";
+		}
+	}
+	
+	/**
+	 * The transposition table analysis and hints search with: the default one
+	 * if a hash file is configured, else one kept in memory for as long as the
+	 * window is open.
+	 */
+	private TranspositionTable getSearchTable() {
+		if (searchTable == null) {
+			TranspositionTable defaultTable = TranspositionTable.getDefault();
+			searchTable = defaultTable != null ? defaultTable : TranspositionTable.allocate(SEARCH_HASH_MB);
+		}
+		return searchTable;
+	}
+	
+	private void stopBackgroundSearches() {
+		cancelComputerMove();
+		if (analysisPanel != null) {
+			analysisPanel.shutdown();
+			analysisPanel = null;
+		}
+		if (hintSearch != null) {
+			hintSearch.shutdown();
+			hintSearch = null;
+			hintStatus = null;
+		}
+	}
+	
+	/**
+	 * If it is the AI's turn, search its move on the background thread and play
+	 * it when found, unless the game has moved on by then.
+	 */
+	public void playComputerMoveIfNeeded() {
+		if (engine == null || engine.isGameEnded() || !engine.isComputerTurn()) {
+			return;
+		}
+		ChessGameEngine game = engine;
+		ChessBoard position = new ChessBoard();
+		position.copyFrom(game.getBoard());
+		int ply = game.getMoveCount();
+		int generation = ++computerGeneration;
+		computerThread.execute(() -> {
+			if (generation != computerGeneration) {
+				return;
+			}
+			// Checked by the search itself, so a cancel just before it starts isn't lost
+			ChessMove move = game.chooseComputerMove(position, ply, () -> generation != computerGeneration);
+			javax.swing.SwingUtilities.invokeLater(() -> {
+				if (generation != computerGeneration || game != engine) {
+					return;
+				}
+				game.playComputerMove(move);
+				boardPanel.refreshBoard();
+				refreshCapturedPieces(); // Update captured pieces display after AI move
+				updateStatusLabel(); // after computer move
+				
+				// Check if player's king was captured (player lost)
+				if (game.getBoard().isKingCaptured(game.getAIColor().opposite())) {
+					handleGameEnd(false);
+				}
+			});
+		});
+	}
+	
+	private void cancelComputerMove() {
+		computerGeneration++;
+		if (engine != null) {
+			engine.cancelComputerMove();
+		}
+	}
+	
+	private void handleUndo() {
+		if (engine.isGameEnded()) {
+			return;
+		}
+		// Against the AI, go back to the player's turn: take back the AI's reply and
+		// the player's move, or just the player's move while the AI is still thinking
+		int plies = (engine.isVsComputer() && !engine.isComputerTurn()) ? 2 : 1;
+		if (engine.getMoveCount() < plies) {
+			return;
+		}
+		cancelComputerMove();
+		for (int i = 0; i < plies; i++) {
+			engine.undoMove();
+		}
+		historyChanged();
+	}
+	
+	private void handleRedo() {
+		if (engine.isGameEnded() || !engine.canRedo()) {
+			return;
+		}
+		cancelComputerMove();
+		engine.redoMove();
+		// Against the AI, replay its reply as well, or search one if it was never made
+		boolean searchReply = engine.isComputerTurn() && !engine.redoMove();
+		historyChanged();
+		if (searchReply) {
+			playComputerMoveIfNeeded();
+		}
+	}
+	
+	private void historyChanged() {
+		boardPanel.refreshBoard();
+		refreshCapturedPieces();
+		updateStatusLabel();
+	}
+	
+	private void handleHint() {
+		GameStatus status = engine.getStatus();
+		if (status.isGameOver() || status.getSideToMove() == engine.getAIColor() || status == hintStatus) {
+			return;
+		}
+		
+		// Analysis may have searched this position already
+		ChessMove analysed = analysisPanel.getAnalysedMove(status, HINT_MIN_ANALYSIS_DEPTH);
+		if (analysed != null) {
+			boardPanel.showHint(analysed);
+			return;
+		}
+		
+		if (hintSearch == null) {
+			hintSearch = new HintSearch(getSearchTable());
+		}
+		hintStatus = status;
+		hintButton.setEnabled(false);
+		hintSearch.request(engine.getBoard(), status.getSideToMove(), move -> {
+			hintStatus = null;
+			hintButton.setEnabled(true);
+			boardPanel.showHint(move);
+		});
+	}
+	
 	public void refreshCapturedPieces() {
 		if (capturedPiecesPanel != null) {
 			capturedPiecesPanel.refreshCapturedPieces();
@@ -807,6 +1030,8 @@ public class ChessGUIManager extends JFrame {
 	}
 
 	public static void main(String[] args) {
+        // Decode the piece images while the menu is up, not when the board first paints
+        ChessImageLoader.preloadInBackground(ChessImageLoader.PIECE_SIZE, CapturedPiecesPanel.ICON_SIZE);
         javax.swing.SwingUtilities.invokeLater(() -> new ChessGUIManager().setVisible(true));
     }
 }
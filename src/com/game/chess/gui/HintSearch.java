@@ -0,0 +1,84 @@
+package com.game.chess.gui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.ChessColor;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.SearchListener;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Suggests a move for the human player: a search of the position with a fixed
+ * time budget on a background thread. It searches with the table analysis
+ * uses, so whatever analysis has already worked out about the position speeds
+ * it up.
+ */
+class HintSearch {
+
+	static final long TIME_BUDGET_MILLIS = 1500;
+
+	private final ChessAIAdvanced ai = new ChessAIAdvanced();
+	private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "hint");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private volatile int generation;
+
+	HintSearch(TranspositionTable transpositionTable) {
+		ai.setTranspositionTable(transpositionTable);
+		ai.setSearchDepth(ChessAIAdvanced.MAX_SEARCH_DEPTH);
+		ai.setTimeLimit(TIME_BUDGET_MILLIS);
+	}
+
+	/**
+	 * Search {@code position} for {@code side} and pass the move found to
+	 * {@code onFound} on the EDT, unless the request is cancelled first. A new
+	 * request cancels the previous one.
+	 */
+	void request(ChessBoard position, ChessColor side, Consumer<ChessMove> onFound) {
+		cancel();
+		ChessBoard copy = new ChessBoard();
+		copy.copyFrom(position);
+		int searchGeneration = generation;
+		searchThread.execute(() -> {
+			if (searchGeneration != generation) {
+				return;
+			}
+			// A stop requested just before chooseMove started is cleared by it, so stop again here
+			SearchListener listener = info -> {
+				if (searchGeneration != generation) {
+					ai.stop();
+				}
+			};
+			ai.addSearchListener(listener);
+			ChessMove move;
+			try {
+				move = ai.chooseMove(copy, side);
+			} finally {
+				ai.removeSearchListener(listener);
+			}
+			SwingUtilities.invokeLater(() -> {
+				if (searchGeneration == generation && move != null) {
+					onFound.accept(move);
+				}
+			});
+		});
+	}
+
+	void cancel() {
+		generation++;
+		ai.stop();
+	}
+
+	void shutdown() {
+		cancel();
+		searchThread.shutdown();
+	}
+}
@@ -6,7 +6,18 @@ import java.util.Random;
 
 public class ChessAI {
 	
-	private final Random random = new Random();
+	private final Random random;
+	
+	public ChessAI() {
+		this(new Random());
+	}
+	
+	/**
+	 * @param random Source for picking between equally good moves; seed it for repeatable games
+	 */
+	public ChessAI(Random random) {
+		this.random = random;
+	}
 
     public ChessMove chooseMove(ChessBoard board, ChessColor color) {
     	// Check for checkmate or stalemate first
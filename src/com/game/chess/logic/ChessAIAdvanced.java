@@ -3,6 +3,11 @@ package com.game.chess.logic;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import com.game.chess.metrics.EvaluationEvent;
+import com.game.chess.metrics.MoveGenerationEvent;
 
 /**
  * Advanced-level Chess AI using Minimax algorithm with alpha-beta pruning.
@@ -10,7 +15,7 @@ import java.util.Random;
  */
 public class ChessAIAdvanced {
 	
-	private final Random random = new Random();
+	private final Random random;
 	
 	// Search depth - how many moves ahead the AI looks
 	private static final int SEARCH_DEPTH = 3; // 3 ply = AI move, opponent response, AI counter
@@ -24,11 +29,120 @@ public class ChessAIAdvanced {
 	private static final int ROOK_VALUE = 500;
 	private static final int QUEEN_VALUE = 900;
 	private static final int KING_VALUE = 20000;
+	
+	/**
+	 * Search bounds. Mate scores are offset by the ply at which the mate is found
+	 * so that shorter mates are preferred.
+	 */
+	private static final int INFINITY = 1000000;
+	static final int MATE_SCORE = 100000;
+	
+	// Scores beyond this are mates (or tablebase wins) and are stored relative to the node
+	static final int MATE_THRESHOLD = MATE_SCORE - 1000;
+	
+	// Maximum number of plies of captures resolved past the nominal search depth
+	private static final int QUIESCENCE_DEPTH = 4;
+	
+	// Deepest search the per-ply buffers leave room for, quiescence included
+	public static final int MAX_SEARCH_DEPTH = SearchStack.MAX_PLY - QUIESCENCE_DEPTH - 1;
+	
+	/**
+	 * Default pruning margins (in centipawns).
+	 * Futility: a quiet move at depth 1 has to gain at least this much to matter.
+	 * Razoring: a depth 2 node this far below alpha is resolved by quiescence only.
+	 * Delta: a capture in quiescence that can't get within this much of alpha is skipped.
+	 */
+	public static final int DEFAULT_FUTILITY_MARGIN = 200;
+	public static final int DEFAULT_RAZOR_MARGIN = 400;
+	public static final int DEFAULT_DELTA_MARGIN = 150;
+	
+	/**
+	 * Search working memory, one per thread. Shared by every instance so that it
+	 * is allocated once and then reused across moves and games.
+	 */
+	private static final ThreadLocal<SearchStack> SEARCH_STACKS = ThreadLocal.withInitial(SearchStack::new);
+	
+	private int futilityMargin = DEFAULT_FUTILITY_MARGIN;
+	private int razorMargin = DEFAULT_RAZOR_MARGIN;
+	private int deltaMargin = DEFAULT_DELTA_MARGIN;
+	private boolean pruningEnabled = true;
+	
+	// Depth used by every instance without a depth of its own; adjustable at runtime
+	private static volatile int defaultSearchDepth = SEARCH_DEPTH;
+	private int searchDepth; // 0 = use the default
+	
+	// Endgame tablebases, or null if none are installed
+	private Tablebase tablebase = Tablebase.getDefault();
+	
+	// Search results shared between searches and runs, or null to search every move from scratch
+	private TranspositionTable transpositionTable = TranspositionTable.getDefault();
+	
+	// Number of positions visited by the last call to chooseMove
+	private long nodeCount;
+	
+	// Statistics of the last call to chooseMove, reported to search listeners
+	private int selDepth;
+	private long hashProbes;
+	private long hashHits;
+	private long expandedNodes;
+	private long betaCutoffs;
+	private long firstMoveCutoffs;
+	
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<>();
+	
+	// Search limits (0 = none); stop, time and node limits end the search early
+	private static final int LIMIT_CHECK_INTERVAL = 1024;
+	private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+	private long nodeLimit;
+	private long timeLimitMillis;
+	private volatile boolean stopRequested;
+	private BooleanSupplier cancelled = NEVER_CANCELLED; // The caller's own stop condition
+	private long deadline;
+	private long nextLimitCheck;
+	private boolean aborted;
+	
+	// Call counters that pick which move generations and evaluations are sampled for JFR
+	private int moveGenerationCalls;
+	private int evaluationCalls;
+
+	public ChessAIAdvanced() {
+		this(new Random());
+	}
+	
+	/**
+	 * @param random Source for picking between equally good moves; seed it for repeatable games
+	 */
+	public ChessAIAdvanced(Random random) {
+		this.random = random;
+	}
 
 	/**
 	 * Choose the best move using minimax algorithm with alpha-beta pruning.
 	 */
 	public ChessMove chooseMove(ChessBoard board, ChessColor color) {
+		return chooseMove(board, color, NEVER_CANCELLED);
+	}
+	
+	/**
+	 * Same as {@link #chooseMove(ChessBoard, ChessColor)}, ending the search
+	 * early once {@code cancelled} returns true. Unlike {@link #stop()}, this
+	 * also holds if the caller cancelled before the search got going.
+	 */
+	public ChessMove chooseMove(ChessBoard board, ChessColor color, BooleanSupplier cancelled) {
+		this.cancelled = cancelled;
+		long startTime = System.nanoTime();
+		nodeCount = 0;
+		selDepth = 0;
+		hashProbes = 0;
+		hashHits = 0;
+		expandedNodes = 0;
+		betaCutoffs = 0;
+		firstMoveCutoffs = 0;
+		stopRequested = false;
+		aborted = false;
+		deadline = startTime + timeLimitMillis * 1_000_000;
+		nextLimitCheck = LIMIT_CHECK_INTERVAL;
+		
 		// Check for checkmate or stalemate first
 		if (board.isCheckmate(color)) {
 			System.out.println(color + " is in checkmate!");
@@ -40,123 +154,596 @@ public class ChessAIAdvanced {
 			return null;
 		}
 		
-		List<ChessMove> allMoves = generateAllLegalMoves(board, color);
+		SearchStack stack = SEARCH_STACKS.get();
+		ChessBoard searchBoard = stack.board;
+		searchBoard.copyFrom(board);
+		
+		int[] rootMoves = stack.moves[0];
+		int moveCount = generateAllLegalMoves(searchBoard, color, rootMoves);
 		
-		if (allMoves.isEmpty()) {
+		if (moveCount == 0) {
 			return null;
 		}
 		
+		UndoRecord undo = stack.undo[0];
+		
 		// Check for immediate checkmate moves
-		for (ChessMove move : allMoves) {
-			ChessBoard testBoard = copyBoard(board);
-			testBoard.applyMove(move);
-			if (testBoard.isCheckmate(color.opposite())) {
+		for (int i = 0; i < moveCount; i++) {
+			searchBoard.makeMove(rootMoves[i], undo);
+			boolean mates = searchBoard.isCheckmate(color.opposite());
+			searchBoard.unmakeMove(rootMoves[i], undo);
+			if (mates) {
 				System.out.println("Advanced AI found checkmate!");
-				return move;
+				return ChessMove.decode(rootMoves[i]);
 			}
 		}
 		
-		// Use minimax to find the best move
-		ChessMove bestMove = null;
-		int bestScore = Integer.MIN_VALUE;
-		List<ChessMove> equalMoves = new ArrayList<>();
+		// Play perfectly once the position is in the tablebases
+		if (tablebase != null && searchBoard.countPieces() <= Tablebase.MAX_PIECES
+				&& tablebase.probe(searchBoard, color) != Tablebase.NOT_FOUND) {
+			int move = chooseTablebaseMove(stack, color, moveCount);
+			if (move != 0) {
+				return ChessMove.decode(move);
+			}
+		}
+		
+		// Search the move that was best last time first
+		long rootHash = 0;
+		if (transpositionTable != null) {
+			transpositionTable.newSearch();
+			rootHash = TranspositionTable.hash(searchBoard, color);
+			promoteMove(rootMoves, moveCount, TranspositionTable.move(transpositionTable.probe(rootHash)));
+		}
 		
-		// Alpha-beta pruning parameters
-		int alpha = Integer.MIN_VALUE;
-		int beta = Integer.MAX_VALUE;
+		// Use minimax to find the best move, one ply deeper per iteration
+		int maxDepth = getSearchDepth();
+		int bestScore = -INFINITY;
+		int[] equalMoves = stack.equalMoves;
+		int equalCount = 0;
+		int[] completedMoves = stack.completedMoves;
+		int completedCount = 0;
+		int completedDepth = 0;
+		int completedScore = 0;
+		
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			bestScore = -INFINITY;
+			equalCount = 0;
+			stack.pvLength[0] = 0;
+			
+			// Alpha-beta pruning parameters
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			
+			for (int i = 0; i < moveCount; i++) {
+				int move = rootMoves[i];
+				searchBoard.makeMove(move, undo);
+				
+				// Score the opponent's best response from their side, then flip it back.
+				// The window is one wider than alpha so that a tie is an exact score, not a bound.
+				int score = -minimax(stack, depth - 1, 1, -beta, -(alpha - 1), color.opposite());
+				
+				searchBoard.unmakeMove(move, undo);
+				
+				if (aborted) {
+					break;
+				}
+				if (score > bestScore) {
+					bestScore = score;
+					equalCount = 0;
+					equalMoves[equalCount++] = move;
+					updatePrincipalVariation(stack, 0, move);
+				} else if (score == bestScore) {
+					equalMoves[equalCount++] = move;
+				}
+				
+				alpha = Math.max(alpha, score);
+			}
+			
+			// An unfinished iteration is thrown away, unless it is all there is
+			if (aborted && (completedCount > 0 || equalCount == 0)) {
+				break;
+			}
+			
+			System.arraycopy(equalMoves, 0, completedMoves, 0, equalCount);
+			completedCount = equalCount;
+			completedDepth = depth;
+			completedScore = bestScore;
+			
+			// The best move so far is searched first in the next iteration
+			promoteMove(rootMoves, moveCount, stack.pv[0][0]);
+			
+			if (!searchListeners.isEmpty()) {
+				reportIteration(stack, depth, bestScore, System.nanoTime() - startTime);
+			}
+			if (aborted) {
+				break;
+			}
+		}
+		
+		// Stopped before a single root move was searched
+		if (completedCount == 0) {
+			return ChessMove.decode(rootMoves[0]);
+		}
+		
+		// Randomly choose among equally good moves to add variety
+		int chosenMove = completedMoves[random.nextInt(completedCount)];
+		if (transpositionTable != null && !aborted) {
+			transpositionTable.store(rootHash, chosenMove, completedDepth, TranspositionTable.EXACT, completedScore);
+		}
+		return ChessMove.decode(chosenMove);
+	}
+	
+	/**
+	 * Subscribe to per-iteration search reports. Without listeners no reports are built.
+	 */
+	public void addSearchListener(SearchListener listener) {
+		searchListeners.add(listener);
+	}
+	
+	public void removeSearchListener(SearchListener listener) {
+		searchListeners.remove(listener);
+	}
+	
+	private void reportIteration(SearchStack stack, int depth, int score, long elapsedNanos) {
+		List<ChessMove> principalVariation = new ArrayList<>(stack.pvLength[0]);
+		for (int i = 0; i < stack.pvLength[0]; i++) {
+			principalVariation.add(ChessMove.decode(stack.pv[0][i]));
+		}
+		SearchInfo info = new SearchInfo(depth, selDepth, nodeCount, elapsedNanos, score, hashProbes, hashHits,
+				expandedNodes, betaCutoffs, firstMoveCutoffs, principalVariation);
+		for (SearchListener listener : searchListeners) {
+			listener.onIteration(info);
+		}
+	}
+	
+	/**
+	 * Pick the root move with the best tablebase result: the fastest win, else a
+	 * draw, else the slowest loss.
+	 * 
+	 * @return The encoded move, or 0 if some reply isn't in the tablebases
+	 */
+	private int chooseTablebaseMove(SearchStack stack, ChessColor color, int moveCount) {
+		ChessBoard searchBoard = stack.board;
+		int[] rootMoves = stack.moves[0];
+		UndoRecord undo = stack.undo[0];
+		int[] equalMoves = stack.equalMoves;
+		int equalCount = 0;
+		int bestScore = -INFINITY;
 		
-		for (ChessMove move : allMoves) {
-			ChessBoard testBoard = copyBoard(board);
-			testBoard.applyMove(move);
+		for (int i = 0; i < moveCount; i++) {
+			int move = rootMoves[i];
+			searchBoard.makeMove(move, undo);
+			int result = tablebase.probe(searchBoard, color.opposite());
+			searchBoard.unmakeMove(move, undo);
 			
-			// Minimize for opponent's response
-			int score = minimax(testBoard, SEARCH_DEPTH - 1, alpha, beta, false, color);
+			if (result == Tablebase.NOT_FOUND) {
+				return 0;
+			}
 			
+			int score = -tablebaseScore(result, 1);
 			if (score > bestScore) {
 				bestScore = score;
-				bestMove = move;
-				equalMoves.clear();
-				equalMoves.add(move);
+				equalCount = 0;
+				equalMoves[equalCount++] = move;
 			} else if (score == bestScore) {
-				equalMoves.add(move);
+				equalMoves[equalCount++] = move;
 			}
-			
-			alpha = Math.max(alpha, score);
 		}
 		
-		// Randomly choose among equally good moves to add variety
-		return equalMoves.isEmpty() ? bestMove : equalMoves.get(random.nextInt(equalMoves.size()));
+		return equalMoves[random.nextInt(equalCount)];
+	}
+	
+	/**
+	 * Convert a tablebase result for the side to move into a search score,
+	 * on the same scale as the mate scores found by search.
+	 */
+	private static int tablebaseScore(int result, int ply) {
+		if (Tablebase.isWin(result)) {
+			return MATE_SCORE - (ply + Tablebase.pliesToMate(result));
+		}
+		if (Tablebase.isLoss(result)) {
+			return -MATE_SCORE + ply + Tablebase.pliesToMate(result);
+		}
+		return 0;
+	}
+	
+	/**
+	 * Set how many plies ahead this AI searches, instead of the default depth.
+	 */
+	public void setSearchDepth(int searchDepth) {
+		this.searchDepth = clampSearchDepth(searchDepth);
+	}
+	
+	public int getSearchDepth() {
+		return searchDepth > 0 ? searchDepth : defaultSearchDepth;
+	}
+	
+	/**
+	 * Set the depth of every AI that has no depth of its own (initially
+	 * {@value #SEARCH_DEPTH}). Takes effect from the next move, also in games
+	 * already running.
+	 */
+	public static void setDefaultSearchDepth(int searchDepth) {
+		defaultSearchDepth = clampSearchDepth(searchDepth);
+	}
+	
+	public static int getDefaultSearchDepth() {
+		return defaultSearchDepth;
+	}
+	
+	private static int clampSearchDepth(int searchDepth) {
+		return Math.max(1, Math.min(searchDepth, MAX_SEARCH_DEPTH));
 	}
 	
 	/**
-	 * Minimax algorithm with alpha-beta pruning.
+	 * Use a different transposition table, or none (null).
+	 */
+	public void setTranspositionTable(TranspositionTable transpositionTable) {
+		this.transpositionTable = transpositionTable;
+	}
+	
+	/**
+	 * Use a different set of endgame tablebases, or none (null).
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+	
+	/**
+	 * Set the pruning margins used near the leaves of the search (in centipawns).
+	 * Smaller margins prune more aggressively but risk missing tactics.
+	 */
+	public void setPruningMargins(int futilityMargin, int razorMargin, int deltaMargin) {
+		this.futilityMargin = futilityMargin;
+		this.razorMargin = razorMargin;
+		this.deltaMargin = deltaMargin;
+	}
+	
+	public int getFutilityMargin() { return futilityMargin; }
+	public int getRazorMargin() { return razorMargin; }
+	public int getDeltaMargin() { return deltaMargin; }
+	
+	/**
+	 * Enable or disable futility pruning, razoring and delta pruning altogether.
+	 */
+	public void setPruningEnabled(boolean pruningEnabled) {
+		this.pruningEnabled = pruningEnabled;
+	}
+	
+	public boolean isPruningEnabled() {
+		return pruningEnabled;
+	}
+	
+	/**
+	 * Stop searching after this many positions (0 = no limit). The move found by
+	 * the last fully searched depth is played.
+	 */
+	public void setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+	
+	/**
+	 * Stop searching after this many milliseconds (0 = no limit). The move found
+	 * by the last fully searched depth is played.
+	 */
+	public void setTimeLimit(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+	}
+	
+	/**
+	 * Ask a search running on another thread to finish as soon as possible.
+	 * chooseMove then returns the move of the last fully searched depth.
+	 * Has no effect on searches started later, including one about to start;
+	 * pass a cancel condition to chooseMove to cover that case.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+	
+	private boolean limitReached() {
+		if (nodeCount >= nextLimitCheck) {
+			nextLimitCheck = nodeCount + LIMIT_CHECK_INTERVAL;
+			if (stopRequested || cancelled.getAsBoolean() || (timeLimitMillis > 0 && System.nanoTime() - deadline >= 0)) {
+				aborted = true;
+			}
+		}
+		if (nodeLimit > 0 && nodeCount >= nodeLimit) {
+			aborted = true;
+		}
+		return aborted;
+	}
+	
+	/**
+	 * Number of positions visited during the last call to chooseMove.
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+	
+	/**
+	 * Minimax algorithm with alpha-beta pruning, written in negamax form:
+	 * scores are always from the point of view of the side to move, so the
+	 * maximizing and minimizing cases share one code path.
 	 * 
-	 * @param board Current board state
+	 * Near the leaves, quiet moves that can't bring the score back up to alpha
+	 * are skipped (futility pruning at depth 1, razoring at depth 2).
+	 * 
+	 * @param stack Search working memory; the position is stack.board
 	 * @param depth Remaining search depth
-	 * @param alpha Best value maximizer can guarantee
-	 * @param beta Best value minimizer can guarantee
-	 * @param maximizingPlayer True if current player is maximizing
-	 * @param aiColor The AI's color (for evaluation)
-	 * @return Best evaluation score
+	 * @param ply Distance from the root (indexes the per-ply buffers)
+	 * @param alpha Best value the side to move can guarantee
+	 * @param beta Best value the opponent can guarantee
+	 * @param currentColor The side to move
+	 * @return Best evaluation score for the side to move
 	 */
-	private int minimax(ChessBoard board, int depth, int alpha, int beta, 
-	                    boolean maximizingPlayer, ChessColor aiColor) {
-		ChessColor currentColor = maximizingPlayer ? aiColor : aiColor.opposite();
+	private int minimax(SearchStack stack, int depth, int ply, int alpha, int beta, ChessColor currentColor) {
+		nodeCount++;
+		selDepth = Math.max(selDepth, ply);
+		stack.pvLength[ply] = 0;
+		ChessBoard board = stack.board;
 		
-		// Terminal conditions
-		if (depth == 0) {
-			return evaluatePosition(board, aiColor);
+		// The caller discards whatever an aborted search returns
+		if (limitReached()) {
+			return 0;
+		}
+		
+		// Exact result from the tablebases ends the search here; the piece count
+		// rules out most positions without the board scan a probe does
+		if (tablebase != null && board.countPieces() <= Tablebase.MAX_PIECES) {
+			int result = tablebase.probe(board, currentColor);
+			if (result != Tablebase.NOT_FOUND) {
+				return tablebaseScore(result, ply);
+			}
 		}
 		
-		if (board.isCheckmate(currentColor)) {
-			// Checkmate is very bad/good depending on who's checkmated
-			return maximizingPlayer ? Integer.MIN_VALUE + 1000 : Integer.MAX_VALUE - 1000;
+		// Terminal conditions
+		if (depth == 0) {
+			return quiescence(stack, QUIESCENCE_DEPTH, ply, alpha, beta, currentColor);
 		}
 		
-		if (board.isStalemate(currentColor)) {
-			return 0; // Stalemate is a draw
+		// Reuse a result from an earlier visit, possibly in an earlier game or run
+		long hash = 0;
+		int hashMove = 0;
+		int originalAlpha = alpha;
+		if (transpositionTable != null) {
+			hash = TranspositionTable.hash(board, currentColor);
+			long entry = transpositionTable.probe(hash);
+			hashProbes++;
+			if (entry != 0) {
+				hashHits++;
+				hashMove = TranspositionTable.move(entry);
+				if (TranspositionTable.depth(entry) >= depth) {
+					int score = scoreFromTable(TranspositionTable.score(entry), ply);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && score >= beta)
+							|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+						return score;
+					}
+				}
+			}
 		}
 		
-		List<ChessMove> moves = generateAllLegalMoves(board, currentColor);
+		int[] moves = stack.moves[ply];
+		int moveCount = generateAllLegalMoves(board, currentColor, moves);
+		orderMoves(board, moves, stack.scores[ply], moveCount);
+		promoteMove(moves, moveCount, hashMove);
+		boolean inCheck = board.isInCheck(currentColor);
 		
-		if (moves.isEmpty()) {
-			return evaluatePosition(board, aiColor);
+		if (moveCount == 0) {
+			// Checkmate is very bad for the side to move, stalemate is a draw
+			return inCheck ? -MATE_SCORE + ply : 0;
 		}
 		
-		if (maximizingPlayer) {
-			int maxEval = Integer.MIN_VALUE;
-			for (ChessMove move : moves) {
-				ChessBoard testBoard = copyBoard(board);
-				testBoard.applyMove(move);
-				int eval = minimax(testBoard, depth - 1, alpha, beta, false, aiColor);
-				maxEval = Math.max(maxEval, eval);
-				alpha = Math.max(alpha, eval);
-				if (beta <= alpha) {
-					break; // Beta cutoff
+		// Frontier and pre-frontier pruning only make sense for quiet positions
+		boolean futile = false;
+		if (pruningEnabled && !inCheck && depth <= 2) {
+			int staticEval = evaluatePosition(board, currentColor);
+			
+			// Razoring: hopelessly behind two plies from the leaves, so only captures can save us
+			if (depth == 2 && staticEval + razorMargin <= alpha) {
+				int score = quiescence(stack, QUIESCENCE_DEPTH, ply, alpha, beta, currentColor);
+				if (score <= alpha) {
+					return score;
 				}
+				// Quiescence at this ply wrote its captures over the move list; build it again
+				moveCount = generateAllLegalMoves(board, currentColor, moves);
+				orderMoves(board, moves, stack.scores[ply], moveCount);
+				promoteMove(moves, moveCount, hashMove);
+			}
+			
+			// Futility pruning: a quiet move at the frontier won't recover the deficit
+			if (depth == 1 && staticEval + futilityMargin <= alpha) {
+				futile = true;
+			}
+		}
+		
+		UndoRecord undo = stack.undo[ply];
+		int bestEval = -INFINITY;
+		int bestMove = 0;
+		int movesSearched = 0;
+		expandedNodes++;
+		for (int i = 0; i < moveCount; i++) {
+			int move = moves[i];
+			boolean isCapture = board.getPiece(ChessMove.toRow(move), ChessMove.toCol(move)) != null;
+			board.makeMove(move, undo);
+			
+			// Never prune captures or checking moves
+			if (futile && !isCapture && !board.isInCheck(currentColor.opposite())) {
+				board.unmakeMove(move, undo);
+				continue;
+			}
+			
+			int eval = -minimax(stack, depth - 1, ply + 1, -beta, -alpha, currentColor.opposite());
+			board.unmakeMove(move, undo);
+			if (aborted) {
+				return 0;
+			}
+			movesSearched++;
+			
+			if (eval > bestEval) {
+				bestEval = eval;
+				bestMove = move;
 			}
-			return maxEval;
-		} else {
-			int minEval = Integer.MAX_VALUE;
-			for (ChessMove move : moves) {
-				ChessBoard testBoard = copyBoard(board);
-				testBoard.applyMove(move);
-				int eval = minimax(testBoard, depth - 1, alpha, beta, true, aiColor);
-				minEval = Math.min(minEval, eval);
-				beta = Math.min(beta, eval);
-				if (beta <= alpha) {
-					break; // Alpha cutoff
+			if (eval > alpha) {
+				alpha = eval;
+				updatePrincipalVariation(stack, ply, move);
+			}
+			if (beta <= alpha) {
+				betaCutoffs++;
+				if (movesSearched == 1) {
+					firstMoveCutoffs++;
 				}
+				break; // Beta cutoff
 			}
-			return minEval;
 		}
+		
+		// Every move was pruned: the position is at best worth alpha
+		int result = bestEval == -INFINITY ? alpha : bestEval;
+		
+		if (transpositionTable != null) {
+			int bound = result <= originalAlpha ? TranspositionTable.UPPER
+					: result >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			// A fail-low best move is only a guess, so keep whatever move was stored before
+			int storedMove = bound == TranspositionTable.UPPER ? 0 : bestMove;
+			transpositionTable.store(hash, storedMove, depth, bound, scoreToTable(result, ply));
+		}
+		return result;
 	}
 	
 	/**
-	 * Generate all legal moves for a given color.
+	 * Mate scores count plies from the root; in the table they count from the
+	 * stored position so they stay right wherever it is reached from.
 	 */
-	private List<ChessMove> generateAllLegalMoves(ChessBoard board, ChessColor color) {
-		List<ChessMove> moves = new ArrayList<>();
+	private static int scoreToTable(int score, int ply) {
+		if (score > MATE_THRESHOLD) {
+			return score + ply;
+		}
+		if (score < -MATE_THRESHOLD) {
+			return score - ply;
+		}
+		return score;
+	}
+	
+	private static int scoreFromTable(int score, int ply) {
+		if (score > MATE_THRESHOLD) {
+			return score - ply;
+		}
+		if (score < -MATE_THRESHOLD) {
+			return score + ply;
+		}
+		return score;
+	}
+	
+	/**
+	 * Move the given move (if present) to the front, keeping the order of the rest.
+	 */
+	private static void promoteMove(int[] moves, int count, int move) {
+		if (move == 0) {
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				System.arraycopy(moves, 0, moves, 1, i);
+				moves[0] = move;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Quiescence search: keep resolving captures past the nominal depth so the
+	 * evaluation is never taken in the middle of an exchange.
+	 * 
+	 * Captures are tried most valuable victim first. Captures that can't raise
+	 * the score to alpha even when the captured piece is won outright (plus the
+	 * delta margin) are skipped.
+	 */
+	private int quiescence(SearchStack stack, int depth, int ply, int alpha, int beta, ChessColor currentColor) {
+		nodeCount++;
+		selDepth = Math.max(selDepth, ply);
+		stack.pvLength[ply] = 0;
+		ChessBoard board = stack.board;
+		
+		// Stand pat: the side to move can usually do at least as well as the static score
+		int standPat = evaluatePosition(board, currentColor);
+		if (standPat >= beta || depth == 0) {
+			return standPat;
+		}
+		
+		// Not even winning a queen would help
+		if (pruningEnabled && standPat + QUEEN_VALUE + deltaMargin <= alpha) {
+			return alpha;
+		}
+		
+		if (standPat > alpha) {
+			alpha = standPat;
+		}
+		
+		int[] moves = stack.moves[ply];
+		int moveCount = generateCaptureMoves(board, currentColor, moves);
+		orderMoves(board, moves, stack.scores[ply], moveCount);
+		
+		UndoRecord undo = stack.undo[ply];
+		for (int i = 0; i < moveCount; i++) {
+			int move = moves[i];
+			ChessPiece captured = board.getPiece(ChessMove.toRow(move), ChessMove.toCol(move));
+			if (pruningEnabled && standPat + getPieceValue(captured.getType()) + deltaMargin <= alpha) {
+				continue; // Delta pruning
+			}
+			
+			board.makeMove(move, undo);
+			int eval = -quiescence(stack, depth - 1, ply + 1, -beta, -alpha, currentColor.opposite());
+			board.unmakeMove(move, undo);
+			
+			if (eval >= beta) {
+				return eval;
+			}
+			if (eval > alpha) {
+				alpha = eval;
+			}
+		}
+		
+		return alpha;
+	}
+	
+	/**
+	 * Record {@code move} followed by the child's best line as the principal
+	 * variation from {@code ply}.
+	 */
+	private void updatePrincipalVariation(SearchStack stack, int ply, int move) {
+		int[] line = stack.pv[ply];
+		line[0] = move;
+		int childLength = stack.pvLength[ply + 1];
+		System.arraycopy(stack.pv[ply + 1], 0, line, 1, childLength);
+		stack.pvLength[ply] = childLength + 1;
+	}
+	
+	/**
+	 * Generate all legal moves for a given color into {@code moves}.
+	 * King moves of two squares are flagged as castling.
+	 * 
+	 * @return Number of moves written
+	 */
+	int generateAllLegalMoves(ChessBoard board, ChessColor color, int[] moves) {
+		if (++moveGenerationCalls % MoveGenerationEvent.SAMPLE_INTERVAL != 0) {
+			return generateLegalMoves(board, color, moves);
+		}
+		
+		MoveGenerationEvent event = new MoveGenerationEvent();
+		event.begin();
+		int count = generateLegalMoves(board, color, moves);
+		event.end();
+		if (event.shouldCommit()) {
+			event.pieceCount = board.countPieces();
+			event.moveCount = count;
+			event.commit();
+		}
+		return count;
+	}
+	
+	private int generateLegalMoves(ChessBoard board, ChessColor color, int[] moves) {
+		int count = 0;
 		
 		for (int fromRow = 0; fromRow < ChessBoard.SIZE; fromRow++) {
 			for (int fromCol = 0; fromCol < ChessBoard.SIZE; fromCol++) {
@@ -165,38 +752,106 @@ public class ChessAIAdvanced {
 					continue;
 				}
 				
-				// Check for castling moves if this is a king
-				if (piece.getType() == ChessPieceType.KING) {
-					// Try kingside castling
-					ChessMove kingsideCastle = new ChessMove(fromRow, fromCol, fromRow, fromCol + 2, true);
-					if (board.isLegalMove(kingsideCastle, color)) {
-						moves.add(kingsideCastle);
-					}
-					// Try queenside castling
-					ChessMove queensideCastle = new ChessMove(fromRow, fromCol, fromRow, fromCol - 2, true);
-					if (board.isLegalMove(queensideCastle, color)) {
-						moves.add(queensideCastle);
+				boolean isKing = piece.getType() == ChessPieceType.KING;
+				for (int toRow = 0; toRow < ChessBoard.SIZE; toRow++) {
+					for (int toCol = 0; toCol < ChessBoard.SIZE; toCol++) {
+						if (board.isLegalMove(fromRow, fromCol, toRow, toCol, color)) {
+							boolean isCastling = isKing && fromRow == toRow && Math.abs(toCol - fromCol) == 2;
+							moves[count++] = ChessMove.encode(fromRow, fromCol, toRow, toCol, isCastling);
+						}
 					}
 				}
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Generate all legal captures for a given color into {@code moves}.
+	 * 
+	 * @return Number of moves written
+	 */
+	private int generateCaptureMoves(ChessBoard board, ChessColor color, int[] moves) {
+		int count = 0;
+		
+		for (int fromRow = 0; fromRow < ChessBoard.SIZE; fromRow++) {
+			for (int fromCol = 0; fromCol < ChessBoard.SIZE; fromCol++) {
+				ChessPiece piece = board.getPiece(fromRow, fromCol);
+				if (piece == null || piece.getColor() != color) {
+					continue;
+				}
 				
 				for (int toRow = 0; toRow < ChessBoard.SIZE; toRow++) {
 					for (int toCol = 0; toCol < ChessBoard.SIZE; toCol++) {
-						ChessMove move = new ChessMove(fromRow, fromCol, toRow, toCol);
-						if (board.isLegalMove(move, color)) {
-							moves.add(move);
+						ChessPiece target = board.getPiece(toRow, toCol);
+						if (target == null || target.getColor() == color) {
+							continue;
+						}
+						if (board.isLegalMove(fromRow, fromCol, toRow, toCol, color)) {
+							moves[count++] = ChessMove.encode(fromRow, fromCol, toRow, toCol, false);
 						}
 					}
 				}
 			}
 		}
 		
-		return moves;
+		return count;
+	}
+	
+	/**
+	 * Put captures first (most valuable victim / least valuable attacker) so
+	 * alpha-beta cutoffs happen early. Quiet moves keep their generation order.
+	 * Insertion sort: move lists are short and this sorts in place.
+	 */
+	private void orderMoves(ChessBoard board, int[] moves, int[] scores, int count) {
+		for (int i = 0; i < count; i++) {
+			scores[i] = moveOrderScore(board, moves[i]);
+		}
+		for (int i = 1; i < count; i++) {
+			int move = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves[j + 1] = move;
+			scores[j + 1] = score;
+		}
+	}
+	
+	private int moveOrderScore(ChessBoard board, int move) {
+		ChessPiece victim = board.getPiece(ChessMove.toRow(move), ChessMove.toCol(move));
+		if (victim == null) {
+			return 0;
+		}
+		ChessPiece attacker = board.getPiece(ChessMove.fromRow(move), ChessMove.fromCol(move));
+		return getPieceValue(victim.getType()) * 10 - getPieceValue(attacker.getType()) / 100;
 	}
 	
 	/**
 	 * Evaluate the board position with material and positional considerations.
 	 */
-	private int evaluatePosition(ChessBoard board, ChessColor color) {
+	int evaluatePosition(ChessBoard board, ChessColor color) {
+		if (++evaluationCalls % EvaluationEvent.SAMPLE_INTERVAL != 0) {
+			return evaluateStatically(board, color);
+		}
+		
+		EvaluationEvent event = new EvaluationEvent();
+		event.begin();
+		int score = evaluateStatically(board, color);
+		event.end();
+		if (event.shouldCommit()) {
+			event.pieceCount = board.countPieces();
+			event.score = score;
+			event.commit();
+		}
+		return score;
+	}
+	
+	private int evaluateStatically(ChessBoard board, ChessColor color) {
 		int score = 0;
 		
 		// Material and positional evaluation
@@ -326,21 +981,18 @@ public class ChessAIAdvanced {
 				// Check for castling moves if this is a king
 				if (piece.getType() == ChessPieceType.KING) {
 					// Try kingside castling
-					ChessMove kingsideCastle = new ChessMove(fromRow, fromCol, fromRow, fromCol + 2, true);
-					if (board.isLegalMove(kingsideCastle, color)) {
+					if (board.isLegalMove(fromRow, fromCol, fromRow, fromCol + 2, color)) {
 						count++;
 					}
 					// Try queenside castling
-					ChessMove queensideCastle = new ChessMove(fromRow, fromCol, fromRow, fromCol - 2, true);
-					if (board.isLegalMove(queensideCastle, color)) {
+					if (board.isLegalMove(fromRow, fromCol, fromRow, fromCol - 2, color)) {
 						count++;
 					}
 				}
 				
 				for (int toRow = 0; toRow < ChessBoard.SIZE; toRow++) {
 					for (int toCol = 0; toCol < ChessBoard.SIZE; toCol++) {
-						ChessMove move = new ChessMove(fromRow, fromCol, toRow, toCol);
-						if (board.isLegalMove(move, color)) {
+						if (board.isLegalMove(fromRow, fromCol, toRow, toCol, color)) {
 							count++;
 						}
 					}
@@ -372,28 +1024,4 @@ public class ChessAIAdvanced {
 				return 0;
 		}
 	}
-	
-	/**
-	 * Create a deep copy of the chess board.
-	 */
-	private ChessBoard copyBoard(ChessBoard original) {
-		ChessBoard copy = new ChessBoard();
-		
-		for (int row = 0; row < ChessBoard.SIZE; row++) {
-			for (int col = 0; col < ChessBoard.SIZE; col++) {
-				copy.setPiece(row, col, null);
-			}
-		}
-		
-		for (int row = 0; row < ChessBoard.SIZE; row++) {
-			for (int col = 0; col < ChessBoard.SIZE; col++) {
-				ChessPiece piece = original.getPiece(row, col);
-				if (piece != null) {
-					copy.setPiece(row, col, new ChessPiece(piece.getType(), piece.getColor()));
-				}
-			}
-		}
-		
-		return copy;
-	}
 }
@@ -1,8 +1,10 @@
 package com.game.chess.logic;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Intermediate-level Chess AI that evaluates moves based on material advantage.
@@ -10,7 +12,9 @@ import java.util.Random;
  */
 public class ChessAIIntermediate {
 	
-	private final Random random = new Random();
+	private final Random random;
+	
+	private final List<SearchListener> searchListeners = new CopyOnWriteArrayList<>();
 	
 	/**
 	 * Standard chess piece values (in centipawns, where 100 = 1 pawn)
@@ -22,10 +26,23 @@ public class ChessAIIntermediate {
 	private static final int QUEEN_VALUE = 900;
 	private static final int KING_VALUE = 20000; // King is invaluable
 
+	public ChessAIIntermediate() {
+		this(new Random());
+	}
+	
+	/**
+	 * @param random Source for picking between equally good moves; seed it for repeatable games
+	 */
+	public ChessAIIntermediate(Random random) {
+		this.random = random;
+	}
+
 	/**
 	 * Choose the best move for the AI based on position evaluation.
 	 */
 	public ChessMove chooseMove(ChessBoard board, ChessColor color) {
+		long startTime = System.nanoTime();
+		
 		// Check for checkmate or stalemate first
 		if (board.isCheckmate(color)) {
 			System.out.println(color + " is in checkmate!");
@@ -94,14 +111,26 @@ public class ChessAIIntermediate {
 		}
 		
 		// Evaluate and choose best move from all legal moves
-		return chooseBestMove(board, allMoves, color);
+		return chooseBestMove(board, allMoves, color, startTime);
+	}
+	
+	/**
+	 * Subscribe to search reports: one per move, since this AI looks a single ply
+	 * ahead. Without listeners no reports are built.
+	 */
+	public void addSearchListener(SearchListener listener) {
+		searchListeners.add(listener);
+	}
+	
+	public void removeSearchListener(SearchListener listener) {
+		searchListeners.remove(listener);
 	}
 	
 	/**
 	 * From a list of candidate moves, choose the one that leads to the best position.
 	 * If multiple moves have the same evaluation, randomly pick one.
 	 */
-	private ChessMove chooseBestMove(ChessBoard board, List<ChessMove> moves, ChessColor color) {
+	private ChessMove chooseBestMove(ChessBoard board, List<ChessMove> moves, ChessColor color, long startTime) {
 		List<ChessMove> bestMoves = new ArrayList<>();
 		int bestScore = Integer.MIN_VALUE;
 		
@@ -123,7 +152,16 @@ public class ChessAIIntermediate {
 		}
 		
 		// Randomly choose among equally good moves
-		return bestMoves.get(random.nextInt(bestMoves.size()));
+		ChessMove chosen = bestMoves.get(random.nextInt(bestMoves.size()));
+		
+		if (!searchListeners.isEmpty()) {
+			SearchInfo info = new SearchInfo(1, 1, moves.size(), System.nanoTime() - startTime, bestScore,
+					0, 0, 0, 0, 0, Collections.singletonList(chosen));
+			for (SearchListener listener : searchListeners) {
+				listener.onIteration(info);
+			}
+		}
+		return chosen;
 	}
 	
 	/**
@@ -132,7 +170,7 @@ public class ChessAIIntermediate {
 	 * 
 	 * This uses material counting plus positional bonuses.
 	 */
-	private int evaluatePosition(ChessBoard board, ChessColor color) {
+	int evaluatePosition(ChessBoard board, ChessColor color) {
 		int score = 0;
 		
 		for (int row = 0; row < ChessBoard.SIZE; row++) {
@@ -287,28 +325,12 @@ public class ChessAIIntermediate {
 	}
 	
 	/**
-	 * Create a deep copy of the chess board for move simulation.
+	 * Create a copy of the chess board for move simulation. Pieces are immutable,
+	 * so they are shared rather than copied.
 	 */
 	private ChessBoard copyBoard(ChessBoard original) {
 		ChessBoard copy = new ChessBoard();
-		
-		// Clear the copy's initial position
-		for (int row = 0; row < ChessBoard.SIZE; row++) {
-			for (int col = 0; col < ChessBoard.SIZE; col++) {
-				copy.setPiece(row, col, null);
-			}
-		}
-		
-		// Copy all pieces from original
-		for (int row = 0; row < ChessBoard.SIZE; row++) {
-			for (int col = 0; col < ChessBoard.SIZE; col++) {
-				ChessPiece piece = original.getPiece(row, col);
-				if (piece != null) {
-					copy.setPiece(row, col, new ChessPiece(piece.getType(), piece.getColor()));
-				}
-			}
-		}
-		
+		copy.copyFrom(original);
 		return copy;
 	}
 }
@@ -1,6 +1,7 @@
 package com.game.chess.logic;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ChessBoard {
@@ -20,6 +21,25 @@ public class ChessBoard {
     // Track captured pieces
     private final List<ChessPiece> capturedWhitePieces = new ArrayList<>();
     private final List<ChessPiece> capturedBlackPieces = new ArrayList<>();
+    private final int[] capturedCounts = new int[2 * 6]; // by color ordinal * 6 + type ordinal
+    private int materialBalance = 0; // captured black points minus captured white points
+    private int pieceCount = 0; // pieces on the board, kept up to date by everything that adds or removes one
+    
+    // The rest of the FEN state, kept up to date by applyMove. En passant captures
+    // and the fifty-move rule are not played, but the fields round-trip through FEN.
+    private ChessColor sideToMove = ChessColor.WHITE;
+    private int enPassantSquare = -1; // row * 8 + col of the square skipped by a double pawn push
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+    
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    
+    // FEN letters indexed by ChessPieceType ordinal
+    private static final String FEN_PIECES = "kqrbnp";
+    private static final ChessPieceType[] TYPES = ChessPieceType.values();
+    
+    // Conventional material points indexed by ChessPieceType ordinal
+    private static final int[] MATERIAL_POINTS = {0, 9, 5, 3, 3, 1};
 
     public ChessBoard() {
         setupInitialPosition();
@@ -28,30 +48,31 @@ public class ChessBoard {
     private void setupInitialPosition() {
         // Pawns
         for (int c = 0; c < SIZE; c++) {
-            board[1][c] = new ChessPiece(ChessPieceType.PAWN, ChessColor.WHITE);
-            board[6][c] = new ChessPiece(ChessPieceType.PAWN, ChessColor.BLACK);
+            board[1][c] = ChessPiece.of(ChessPieceType.PAWN, ChessColor.WHITE);
+            board[6][c] = ChessPiece.of(ChessPieceType.PAWN, ChessColor.BLACK);
         }
         // Rooks
-        board[0][0] = new ChessPiece(ChessPieceType.ROOK, ChessColor.WHITE);
-        board[0][7] = new ChessPiece(ChessPieceType.ROOK, ChessColor.WHITE);
-        board[7][0] = new ChessPiece(ChessPieceType.ROOK, ChessColor.BLACK);
-        board[7][7] = new ChessPiece(ChessPieceType.ROOK, ChessColor.BLACK);
+        board[0][0] = ChessPiece.of(ChessPieceType.ROOK, ChessColor.WHITE);
+        board[0][7] = ChessPiece.of(ChessPieceType.ROOK, ChessColor.WHITE);
+        board[7][0] = ChessPiece.of(ChessPieceType.ROOK, ChessColor.BLACK);
+        board[7][7] = ChessPiece.of(ChessPieceType.ROOK, ChessColor.BLACK);
         // Knights
-        board[0][1] = new ChessPiece(ChessPieceType.KNIGHT, ChessColor.WHITE);
-        board[0][6] = new ChessPiece(ChessPieceType.KNIGHT, ChessColor.WHITE);
-        board[7][1] = new ChessPiece(ChessPieceType.KNIGHT, ChessColor.BLACK);
-        board[7][6] = new ChessPiece(ChessPieceType.KNIGHT, ChessColor.BLACK);
+        board[0][1] = ChessPiece.of(ChessPieceType.KNIGHT, ChessColor.WHITE);
+        board[0][6] = ChessPiece.of(ChessPieceType.KNIGHT, ChessColor.WHITE);
+        board[7][1] = ChessPiece.of(ChessPieceType.KNIGHT, ChessColor.BLACK);
+        board[7][6] = ChessPiece.of(ChessPieceType.KNIGHT, ChessColor.BLACK);
         // Bishops
-        board[0][2] = new ChessPiece(ChessPieceType.BISHOP, ChessColor.WHITE);
-        board[0][5] = new ChessPiece(ChessPieceType.BISHOP, ChessColor.WHITE);
-        board[7][2] = new ChessPiece(ChessPieceType.BISHOP, ChessColor.BLACK);
-        board[7][5] = new ChessPiece(ChessPieceType.BISHOP, ChessColor.BLACK);
+        board[0][2] = ChessPiece.of(ChessPieceType.BISHOP, ChessColor.WHITE);
+        board[0][5] = ChessPiece.of(ChessPieceType.BISHOP, ChessColor.WHITE);
+        board[7][2] = ChessPiece.of(ChessPieceType.BISHOP, ChessColor.BLACK);
+        board[7][5] = ChessPiece.of(ChessPieceType.BISHOP, ChessColor.BLACK);
         // Queens
-        board[0][3] = new ChessPiece(ChessPieceType.QUEEN, ChessColor.WHITE);
-        board[7][3] = new ChessPiece(ChessPieceType.QUEEN, ChessColor.BLACK);
+        board[0][3] = ChessPiece.of(ChessPieceType.QUEEN, ChessColor.WHITE);
+        board[7][3] = ChessPiece.of(ChessPieceType.QUEEN, ChessColor.BLACK);
         // Kings
-        board[0][4] = new ChessPiece(ChessPieceType.KING, ChessColor.WHITE);
-        board[7][4] = new ChessPiece(ChessPieceType.KING, ChessColor.BLACK);
+        board[0][4] = ChessPiece.of(ChessPieceType.KING, ChessColor.WHITE);
+        board[7][4] = ChessPiece.of(ChessPieceType.KING, ChessColor.BLACK);
+        pieceCount = 4 * SIZE;
     }
 
     public ChessPiece getPiece(int row, int col) {
@@ -59,6 +80,12 @@ public class ChessBoard {
     }
 
     public void setPiece(int row, int col, ChessPiece piece) {
+        if (board[row][col] != null) {
+            pieceCount--;
+        }
+        if (piece != null) {
+            pieceCount++;
+        }
         board[row][col] = piece;
     }
 
@@ -72,31 +99,20 @@ public class ChessBoard {
         // Track captured pieces before overwriting
         ChessPiece capturedPiece = board[toRow][toCol];
         if (capturedPiece != null) {
+            pieceCount--;
             if (capturedPiece.getColor() == ChessColor.WHITE) {
                 capturedWhitePieces.add(capturedPiece);
             } else {
                 capturedBlackPieces.add(capturedPiece);
             }
+            int type = capturedPiece.getType().ordinal();
+            capturedCounts[capturedPiece.getColor().ordinal() * TYPES.length + type]++;
+            materialBalance += capturedPiece.getColor() == ChessColor.WHITE ? -MATERIAL_POINTS[type] : MATERIAL_POINTS[type];
         }
         
         // Track king and rook movements for castling
-        if (piece != null) {
-            if (piece.getType() == ChessPieceType.KING) {
-                if (piece.getColor() == ChessColor.WHITE) {
-                    whiteKingMoved = true;
-                } else {
-                    blackKingMoved = true;
-                }
-            } else if (piece.getType() == ChessPieceType.ROOK) {
-                if (piece.getColor() == ChessColor.WHITE) {
-                    if (fromRow == 0 && fromCol == 0) whiteRookQueensideMoved = true;
-                    if (fromRow == 0 && fromCol == 7) whiteRookKingsideMoved = true;
-                } else {
-                    if (fromRow == 7 && fromCol == 0) blackRookQueensideMoved = true;
-                    if (fromRow == 7 && fromCol == 7) blackRookKingsideMoved = true;
-                }
-            }
-        }
+        trackCastlingPieceMoved(piece, fromRow, fromCol);
+        updateFenState(piece, fromRow, fromCol, toRow, capturedPiece != null);
         
         // Handle castling move
         if (move.isCastling() && piece != null && piece.getType() == ChessPieceType.KING) {
@@ -121,6 +137,402 @@ public class ChessBoard {
         }
     }
     
+    private void updateFenState(ChessPiece piece, int fromRow, int fromCol, int toRow, boolean capture) {
+        if (piece == null) {
+            return;
+        }
+        boolean pawn = piece.getType() == ChessPieceType.PAWN;
+        halfmoveClock = (pawn || capture) ? 0 : halfmoveClock + 1;
+        enPassantSquare = (pawn && Math.abs(toRow - fromRow) == 2) ? ((fromRow + toRow) / 2) * SIZE + fromCol : -1;
+        if (piece.getColor() == ChessColor.BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = piece.getColor().opposite();
+    }
+    
+    /**
+     * Play a move on the board for the search, recording what is needed to take
+     * it back in {@code undo}. Unlike {@link #applyMove(ChessMove)} this does not
+     * track captured pieces or the FEN side to move, en passant square and
+     * clocks, and does not allocate.
+     * 
+     * @param move Move in the compact form produced by {@link ChessMove#encode}
+     */
+    public void makeMove(int move, UndoRecord undo) {
+        int fromRow = ChessMove.fromRow(move);
+        int fromCol = ChessMove.fromCol(move);
+        int toRow = ChessMove.toRow(move);
+        int toCol = ChessMove.toCol(move);
+        ChessPiece piece = board[fromRow][fromCol];
+        
+        undo.capturedPiece = board[toRow][toCol];
+        undo.castlingState = getCastlingState();
+        if (undo.capturedPiece != null) {
+            pieceCount--;
+        }
+        
+        trackCastlingPieceMoved(piece, fromRow, fromCol);
+        board[fromRow][fromCol] = null;
+        board[toRow][toCol] = piece;
+        
+        if (ChessMove.isCastling(move)) {
+            int rookFromCol = (toCol == 6) ? 7 : 0;
+            int rookToCol = (toCol == 6) ? 5 : 3;
+            board[fromRow][rookToCol] = board[fromRow][rookFromCol];
+            board[fromRow][rookFromCol] = null;
+        }
+    }
+    
+    /**
+     * Take back a move played with {@link #makeMove(int, UndoRecord)}.
+     */
+    public void unmakeMove(int move, UndoRecord undo) {
+        int fromRow = ChessMove.fromRow(move);
+        int fromCol = ChessMove.fromCol(move);
+        int toRow = ChessMove.toRow(move);
+        int toCol = ChessMove.toCol(move);
+        
+        if (ChessMove.isCastling(move)) {
+            int rookFromCol = (toCol == 6) ? 7 : 0;
+            int rookToCol = (toCol == 6) ? 5 : 3;
+            board[fromRow][rookFromCol] = board[fromRow][rookToCol];
+            board[fromRow][rookToCol] = null;
+        }
+        
+        board[fromRow][fromCol] = board[toRow][toCol];
+        board[toRow][toCol] = undo.capturedPiece;
+        if (undo.capturedPiece != null) {
+            pieceCount++;
+        }
+        setCastlingState(undo.castlingState);
+    }
+    
+    /**
+     * Same as {@link #applyMove(ChessMove)}, recording in {@code undo} what
+     * {@link #undoMove(ChessMove, UndoRecord)} needs to take the move back.
+     */
+    public void applyMove(ChessMove move, UndoRecord undo) {
+        undo.capturedPiece = board[move.getToRow()][move.getToCol()];
+        undo.castlingState = getCastlingState();
+        undo.enPassantSquare = enPassantSquare;
+        undo.halfmoveClock = halfmoveClock;
+        undo.fullmoveNumber = fullmoveNumber;
+        applyMove(move);
+    }
+    
+    /**
+     * Take back the last move played with {@link #applyMove(ChessMove, UndoRecord)}:
+     * the pieces, castling rights, FEN fields and captured piece history all
+     * return to what they were before it.
+     */
+    public void undoMove(ChessMove move, UndoRecord undo) {
+        unmakeMove(move.encode(), undo);
+        ChessPiece piece = board[move.getFromRow()][move.getFromCol()];
+        sideToMove = piece.getColor();
+        enPassantSquare = undo.enPassantSquare;
+        halfmoveClock = undo.halfmoveClock;
+        fullmoveNumber = undo.fullmoveNumber;
+        
+        ChessPiece capturedPiece = undo.capturedPiece;
+        if (capturedPiece != null) {
+            List<ChessPiece> captured = capturedPiece.getColor() == ChessColor.WHITE ? capturedWhitePieces : capturedBlackPieces;
+            captured.remove(captured.size() - 1);
+            int type = capturedPiece.getType().ordinal();
+            capturedCounts[capturedPiece.getColor().ordinal() * TYPES.length + type]--;
+            materialBalance -= capturedPiece.getColor() == ChessColor.WHITE ? -MATERIAL_POINTS[type] : MATERIAL_POINTS[type];
+        }
+    }
+    
+    /**
+     * Overwrite this board with the position of {@code other} (pieces, castling
+     * rights and the other FEN fields, not the captured piece history). Lets a
+     * scratch board be reused instead of allocating a new one.
+     */
+    public void copyFrom(ChessBoard other) {
+        for (int row = 0; row < SIZE; row++) {
+            System.arraycopy(other.board[row], 0, board[row], 0, SIZE);
+        }
+        pieceCount = other.pieceCount;
+        setCastlingState(other.getCastlingState());
+        sideToMove = other.sideToMove;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+    }
+    
+    /**
+     * Create a board from a FEN string.
+     * 
+     * @throws IllegalArgumentException If the FEN is malformed
+     */
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        board.setFen(fen);
+        return board;
+    }
+    
+    /**
+     * Overwrite this board with a position in Forsyth-Edwards Notation: piece
+     * placement, side to move, castling rights, en passant square, halfmove clock
+     * and fullmove number. The fields after the placement may be left out (as in
+     * EPD), defaulting to "w - - 0 1". The captured piece history is cleared.
+     * 
+     * Parses in place without splitting the string and places shared piece
+     * instances, so reusing one board for many positions does not allocate.
+     * 
+     * @throws IllegalArgumentException If the FEN is malformed; the board is then
+     *         left in an unspecified state
+     */
+    public void setFen(CharSequence fen) {
+        int length = fen.length();
+        int i = 0;
+        
+        // Piece placement, rank 8 first
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                board[row][col] = null;
+            }
+        }
+        pieceCount = 0;
+        int row = SIZE - 1;
+        int col = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (col != SIZE || row == 0) {
+                    throw invalidFen(fen);
+                }
+                row--;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > SIZE) {
+                    throw invalidFen(fen);
+                }
+            } else {
+                int type = FEN_PIECES.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col >= SIZE) {
+                    throw invalidFen(fen);
+                }
+                ChessColor color = Character.isUpperCase(c) ? ChessColor.WHITE : ChessColor.BLACK;
+                board[row][col++] = ChessPiece.of(TYPES[type], color);
+                pieceCount++;
+            }
+        }
+        if (row != 0 || col != SIZE) {
+            throw invalidFen(fen);
+        }
+        
+        // Side to move
+        i = skipSpaces(fen, i);
+        sideToMove = ChessColor.WHITE;
+        if (i < length) {
+            char c = fen.charAt(i++);
+            if (c == 'b') {
+                sideToMove = ChessColor.BLACK;
+            } else if (c != 'w') {
+                throw invalidFen(fen);
+            }
+        }
+        
+        // Castling rights: a missing letter means that rook has moved
+        i = skipSpaces(fen, i);
+        int castling = 0;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                switch (fen.charAt(i)) {
+                    case 'K': castling |= 1; break;
+                    case 'Q': castling |= 2; break;
+                    case 'k': castling |= 4; break;
+                    case 'q': castling |= 8; break;
+                    default: throw invalidFen(fen);
+                }
+            }
+        }
+        whiteKingMoved = false;
+        blackKingMoved = false;
+        whiteRookKingsideMoved = (castling & 1) == 0;
+        whiteRookQueensideMoved = (castling & 2) == 0;
+        blackRookKingsideMoved = (castling & 4) == 0;
+        blackRookQueensideMoved = (castling & 8) == 0;
+        
+        // En passant square
+        i = skipSpaces(fen, i);
+        enPassantSquare = -1;
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else if (i < length) {
+            int epCol = fen.charAt(i) - 'a';
+            int epRow = i + 1 < length ? fen.charAt(i + 1) - '1' : -1;
+            if (!isInsideBoard(epRow, epCol)) {
+                throw invalidFen(fen);
+            }
+            enPassantSquare = epRow * SIZE + epCol;
+            i += 2;
+        }
+        
+        // Move clocks
+        i = skipSpaces(fen, i);
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        if (i < length) {
+            int start = i;
+            for (; i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++) {
+                halfmoveClock = halfmoveClock * 10 + (fen.charAt(i) - '0');
+            }
+            if (i == start) {
+                throw invalidFen(fen);
+            }
+            i = skipSpaces(fen, i);
+            if (i < length) {
+                start = i;
+                for (fullmoveNumber = 0; i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++) {
+                    fullmoveNumber = fullmoveNumber * 10 + (fen.charAt(i) - '0');
+                }
+                if (i == start) {
+                    throw invalidFen(fen);
+                }
+            }
+        }
+        
+        capturedWhitePieces.clear();
+        capturedBlackPieces.clear();
+        Arrays.fill(capturedCounts, 0);
+        materialBalance = 0;
+    }
+    
+    private static int skipSpaces(CharSequence text, int i) {
+        while (i < text.length() && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+    
+    private static IllegalArgumentException invalidFen(CharSequence fen) {
+        return new IllegalArgumentException("Invalid FEN: " + fen);
+    }
+    
+    /**
+     * This position in Forsyth-Edwards Notation.
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        appendFen(fen);
+        return fen.toString();
+    }
+    
+    /**
+     * Append this position in Forsyth-Edwards Notation, so batch tools can reuse one builder.
+     */
+    public void appendFen(StringBuilder fen) {
+        for (int row = SIZE - 1; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < SIZE; col++) {
+                ChessPiece piece = board[row][col];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = FEN_PIECES.charAt(piece.getType().ordinal());
+                fen.append(piece.getColor() == ChessColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                fen.append('/');
+            }
+        }
+        
+        fen.append(sideToMove == ChessColor.WHITE ? " w " : " b ");
+        
+        int length = fen.length();
+        if (hasCastlingRight(ChessColor.WHITE, true)) fen.append('K');
+        if (hasCastlingRight(ChessColor.WHITE, false)) fen.append('Q');
+        if (hasCastlingRight(ChessColor.BLACK, true)) fen.append('k');
+        if (hasCastlingRight(ChessColor.BLACK, false)) fen.append('q');
+        if (fen.length() == length) {
+            fen.append('-');
+        }
+        
+        fen.append(' ');
+        if (enPassantSquare < 0) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + enPassantSquare % SIZE)).append((char) ('1' + enPassantSquare / SIZE));
+        }
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+    }
+    
+    /**
+     * Side to move as of the last FEN loaded and the moves applied since.
+     */
+    public ChessColor getSideToMove() {
+        return sideToMove;
+    }
+    
+    /**
+     * Square skipped by the last move if it was a double pawn push, as row * 8 + col, or -1.
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+    
+    // Plies since the last capture or pawn move
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+    
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+    
+    private void trackCastlingPieceMoved(ChessPiece piece, int fromRow, int fromCol) {
+        if (piece == null) {
+            return;
+        }
+        if (piece.getType() == ChessPieceType.KING) {
+            if (piece.getColor() == ChessColor.WHITE) {
+                whiteKingMoved = true;
+            } else {
+                blackKingMoved = true;
+            }
+        } else if (piece.getType() == ChessPieceType.ROOK) {
+            if (piece.getColor() == ChessColor.WHITE) {
+                if (fromRow == 0 && fromCol == 0) whiteRookQueensideMoved = true;
+                if (fromRow == 0 && fromCol == 7) whiteRookKingsideMoved = true;
+            } else {
+                if (fromRow == 7 && fromCol == 0) blackRookQueensideMoved = true;
+                if (fromRow == 7 && fromCol == 7) blackRookKingsideMoved = true;
+            }
+        }
+    }
+    
+    // Castling flags packed into one int so they can be saved and restored cheaply
+    private int getCastlingState() {
+        return (whiteKingMoved ? 1 : 0)
+                | (blackKingMoved ? 2 : 0)
+                | (whiteRookKingsideMoved ? 4 : 0)
+                | (whiteRookQueensideMoved ? 8 : 0)
+                | (blackRookKingsideMoved ? 16 : 0)
+                | (blackRookQueensideMoved ? 32 : 0);
+    }
+    
+    private void setCastlingState(int state) {
+        whiteKingMoved = (state & 1) != 0;
+        blackKingMoved = (state & 2) != 0;
+        whiteRookKingsideMoved = (state & 4) != 0;
+        whiteRookQueensideMoved = (state & 8) != 0;
+        blackRookKingsideMoved = (state & 16) != 0;
+        blackRookQueensideMoved = (state & 32) != 0;
+    }
+    
     public boolean isKingCaptured(ChessColor color) {
         for (int row = 0; row < SIZE; row++) {
             for (int col = 0; col < SIZE; col++) {
@@ -174,10 +586,9 @@ public class ChessBoard {
                             return true;
                         }
                     } else {
-                        ChessMove attackMove = new ChessMove(row, col, kingRow, kingCol);
                         // Check if this piece can legally move to the king's position
                         // We use a simplified check that doesn't verify if the move leaves the attacker's king in check
-                        if (isLegalMoveIgnoringCheck(attackMove, opponentColor)) {
+                        if (isLegalMoveIgnoringCheck(row, col, kingRow, kingCol, opponentColor)) {
                             return true;
                         }
                     }
@@ -221,8 +632,7 @@ public class ChessBoard {
                 
                 for (int toRow = 0; toRow < SIZE; toRow++) {
                     for (int toCol = 0; toCol < SIZE; toCol++) {
-                        ChessMove move = new ChessMove(fromRow, fromCol, toRow, toCol);
-                        if (isLegalMove(move, color)) {
+                        if (isLegalMove(fromRow, fromCol, toRow, toCol, color)) {
                             return true;
                         }
                     }
@@ -232,17 +642,65 @@ public class ChessBoard {
         return false;
     }
     
+    /**
+     * Count the legal moves available to the given color.
+     */
+    public int countLegalMoves(ChessColor color) {
+        int count = 0;
+        for (int fromRow = 0; fromRow < SIZE; fromRow++) {
+            for (int fromCol = 0; fromCol < SIZE; fromCol++) {
+                ChessPiece piece = board[fromRow][fromCol];
+                if (piece == null || piece.getColor() != color) {
+                    continue;
+                }
+                
+                for (int toRow = 0; toRow < SIZE; toRow++) {
+                    for (int toCol = 0; toCol < SIZE; toCol++) {
+                        if (isLegalMove(fromRow, fromCol, toRow, toCol, color)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Count the pieces of both colors on the board. Kept as the board changes,
+     * so this is cheap enough to call at every node of a search.
+     */
+    public int countPieces() {
+        return pieceCount;
+    }
+    
+    /**
+     * Check if neither side can mate: bare kings, or a single knight or bishop
+     * besides them.
+     */
+    public boolean isInsufficientMaterial() {
+        int minorPieces = 0;
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                ChessPiece piece = board[row][col];
+                if (piece == null || piece.getType() == ChessPieceType.KING) {
+                    continue;
+                }
+                if ((piece.getType() != ChessPieceType.KNIGHT && piece.getType() != ChessPieceType.BISHOP)
+                        || ++minorPieces > 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
     /**
      * Check if a move is legal according to piece movement rules only,
      * without checking if it leaves the player's own king in check.
      * Used internally for check detection.
      */
-    private boolean isLegalMoveIgnoringCheck(ChessMove move, ChessColor player) {
-        int fromRow = move.getFromRow();
-        int fromCol = move.getFromCol();
-        int toRow = move.getToRow();
-        int toCol = move.getToCol();
-
+    private boolean isLegalMoveIgnoringCheck(int fromRow, int fromCol, int toRow, int toCol, ChessColor player) {
         if (!isInsideBoard(fromRow, fromCol) || !isInsideBoard(toRow, toCol)) {
             return false;
         }
@@ -281,11 +739,14 @@ public class ChessBoard {
     }
 
     public boolean isLegalMove(ChessMove move, ChessColor player) {
-        int fromRow = move.getFromRow();
-        int fromCol = move.getFromCol();
-        int toRow = move.getToRow();
-        int toCol = move.getToCol();
+        return isLegalMove(move.getFromRow(), move.getFromCol(), move.getToRow(), move.getToCol(), player);
+    }
 
+    /**
+     * Same as {@link #isLegalMove(ChessMove, ChessColor)}, for callers that
+     * work with plain coordinates and don't want to allocate a move.
+     */
+    public boolean isLegalMove(int fromRow, int fromCol, int toRow, int toCol, ChessColor player) {
         if (!isInsideBoard(fromRow, fromCol) || !isInsideBoard(toRow, toCol)) {
             return false;
         }
@@ -556,8 +1017,7 @@ public class ChessBoard {
             for (int c = 0; c < SIZE; c++) {
                 ChessPiece piece = board[r][c];
                 if (piece != null && piece.getColor() == opponentColor) {
-                    ChessMove attackMove = new ChessMove(r, c, row, col);
-                    if (isLegalMoveIgnoringCheck(attackMove, opponentColor)) {
+                    if (isLegalMoveIgnoringCheck(r, c, row, col, opponentColor)) {
                         return true;
                     }
                 }
@@ -567,6 +1027,31 @@ public class ChessBoard {
         return false;
     }
     
+    /**
+     * Whether the given side still has the right to castle on one wing: neither
+     * the king nor that rook has moved, and both are still on their home squares.
+     * This is the castling right as written in FEN, not whether castling is legal
+     * right now.
+     */
+    public boolean hasCastlingRight(ChessColor color, boolean kingside) {
+        int homeRow = (color == ChessColor.WHITE) ? 0 : 7;
+        int rookCol = kingside ? 7 : 0;
+        boolean kingMoved = (color == ChessColor.WHITE) ? whiteKingMoved : blackKingMoved;
+        boolean rookMoved;
+        if (color == ChessColor.WHITE) {
+            rookMoved = kingside ? whiteRookKingsideMoved : whiteRookQueensideMoved;
+        } else {
+            rookMoved = kingside ? blackRookKingsideMoved : blackRookQueensideMoved;
+        }
+        if (kingMoved || rookMoved) {
+            return false;
+        }
+        ChessPiece king = board[homeRow][4];
+        ChessPiece rook = board[homeRow][rookCol];
+        return king != null && king.getType() == ChessPieceType.KING && king.getColor() == color
+                && rook != null && rook.getType() == ChessPieceType.ROOK && rook.getColor() == color;
+    }
+    
     /**
      * Get the list of captured white pieces.
      */
@@ -580,5 +1065,20 @@ public class ChessBoard {
     public List<ChessPiece> getCapturedBlackPieces() {
         return new ArrayList<>(capturedBlackPieces);
     }
+    
+    /**
+     * How many pieces of that color and type have been captured.
+     */
+    public int getCapturedCount(ChessColor color, ChessPieceType type) {
+        return capturedCounts[color.ordinal() * TYPES.length + type.ordinal()];
+    }
+    
+    /**
+     * Material difference from the captures so far, in conventional points
+     * (pawn 1, knight and bishop 3, rook 5, queen 9): positive when White is ahead.
+     */
+    public int getMaterialBalance() {
+        return materialBalance;
+    }
 	
 	}
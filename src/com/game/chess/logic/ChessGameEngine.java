@@ -1,12 +1,33 @@
 package com.game.chess.logic;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import com.game.chess.metrics.ChooseMoveEvent;
+import com.game.chess.metrics.EngineMetrics;
+import com.game.chess.metrics.MoveAppliedEvent;
+
 public class ChessGameEngine {
 
 	public enum AILevel {
-        NONE,
-        BEGINNER,
-        INTERMEDIATE,
-        ADVANCED
+        NONE(0),
+        BEGINNER(4),
+        INTERMEDIATE(10),
+        ADVANCED(16);
+        
+        // How many plies into the game the AI may still play opening book moves
+        private final int maxBookPly;
+        
+        AILevel(int maxBookPly) {
+            this.maxBookPly = maxBookPly;
+        }
+        
+        public int getMaxBookPly() {
+            return maxBookPly;
+        }
     }
 
 	private final ChessBoard board;
@@ -16,8 +37,17 @@ public class ChessGameEngine {
     private final ChessAI basicAI;
     private final ChessAIIntermediate intermediateAI;
     private final ChessAIAdvanced advancedAI;
+    private OpeningBook openingBook;
     private int moveCount;
     private boolean gameEnded;
+    private long changedSquares; // Squares changed since the view last asked, bit row * 8 + col
+    private final Map<Long, Integer> positionCounts = new HashMap<>(); // By Zobrist hash, for repetitions
+    private GameStatus status; // Of the current position; null until asked for
+    
+    // Moves played, with what it takes to reverse them; entries from historySize on can be redone
+    private final List<ChessMove> historyMoves = new ArrayList<>();
+    private final List<UndoRecord> historyUndos = new ArrayList<>();
+    private int historySize;
 
     public ChessGameEngine(AILevel aiLevel) {
         this.board = new ChessBoard();
@@ -27,8 +57,11 @@ public class ChessGameEngine {
         this.basicAI = (aiLevel == AILevel.BEGINNER) ? new ChessAI() : null;
         this.intermediateAI = (aiLevel == AILevel.INTERMEDIATE) ? new ChessAIIntermediate() : null;
         this.advancedAI = (aiLevel == AILevel.ADVANCED) ? new ChessAIAdvanced() : null;
+        this.openingBook = (aiLevel != AILevel.NONE) ? OpeningBook.getDefault() : null;
         this.moveCount = 0;
         this.gameEnded = false;
+        positionCounts.put(TranspositionTable.hash(board, currentPlayer), 1);
+        EngineMetrics.getDefault().gameStarted();
     }
     
     /**
@@ -43,6 +76,13 @@ public class ChessGameEngine {
         return aiColor;
     }
     
+    /**
+     * Replace the opening book the AI plays from (null to always search).
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+    
     // Deprecated constructor for backward compatibility
     @Deprecated
     public ChessGameEngine(boolean vsComputer) {
@@ -69,40 +109,166 @@ public class ChessGameEngine {
             return false;
         }
 
-        // 2) ask board/logic if this move is legal (you'll implement this next)
-        if (!board.isLegalMove(move, currentPlayer)) {
+        // 2) look the move up in this position's legal moves
+        if (!getStatus().isLegal(move)) {
             return false;
         }
 
         // 3) apply if legal
-        board.applyMove(move);
-        moveCount++;
-        switchTurn();
+        applyMove(move, false);
         return true;
     }
     
     public void makeComputerMoveIfNeeded() {
-        if (aiLevel != AILevel.NONE && aiColor != null && currentPlayer == aiColor) {
-            ChessMove move = null;
-            
-            // Choose AI based on difficulty level
+        if (isComputerTurn()) {
+            playComputerMove(chooseComputerMove(board, moveCount));
+        }
+    }
+    
+    public boolean isComputerTurn() {
+        return aiLevel != AILevel.NONE && aiColor != null && currentPlayer == aiColor;
+    }
+    
+    /**
+     * Pick the AI's move in {@code position}, a copy of the game position taken
+     * when it was the AI's turn, {@code ply} moves into the game. Nothing of the
+     * game is touched, so this can run off the EDT while the game goes on; only
+     * one call may run at a time. Play the result with {@link #playComputerMove}.
+     */
+    public ChessMove chooseComputerMove(ChessBoard position, int ply) {
+        return chooseComputerMove(position, ply, () -> false);
+    }
+    
+    /**
+     * Same as {@link #chooseComputerMove(ChessBoard, int)}, returning early once
+     * {@code cancelled} returns true, however soon that happens.
+     */
+    public ChessMove chooseComputerMove(ChessBoard position, int ply, BooleanSupplier cancelled) {
+        ChessColor color = aiColor;
+        GamePhase phase = GamePhase.of(position, ply);
+        long startTime = System.nanoTime();
+        ChooseMoveEvent event = new ChooseMoveEvent();
+        event.begin();
+        ChessMove move = null;
+        
+        // Known openings come straight from the book, no search needed
+        if (openingBook != null && ply < aiLevel.getMaxBookPly()) {
+            move = openingBook.findMove(position, color);
+        }
+        boolean fromBook = move != null;
+        
+        // Otherwise choose AI based on difficulty level
+        if (move == null) {
             if (aiLevel == AILevel.BEGINNER && basicAI != null) {
-                move = basicAI.chooseMove(board, currentPlayer);
+                move = basicAI.chooseMove(position, color);
             } else if (aiLevel == AILevel.INTERMEDIATE && intermediateAI != null) {
-                move = intermediateAI.chooseMove(board, currentPlayer);
+                move = intermediateAI.chooseMove(position, color);
             } else if (aiLevel == AILevel.ADVANCED && advancedAI != null) {
-                move = advancedAI.chooseMove(board, currentPlayer);
-            }
-            
-            if (move != null) {
-                board.applyMove(move);
-                moveCount++;
-                switchTurn();
-            } else {
-                System.out.println("Computer has no legal move.");
-                gameEnded = true;
+                move = advancedAI.chooseMove(position, color, cancelled);
             }
         }
+        
+        event.end();
+        long nodes = (!fromBook && advancedAI != null) ? advancedAI.getNodeCount() : 0;
+        EngineMetrics.getDefault().recordAIMove(aiLevel, phase, System.nanoTime() - startTime, nodes);
+        if (event.shouldCommit()) {
+            recordChooseMove(event, position, color, ply, move, fromBook);
+        }
+        return move;
+    }
+    
+    /**
+     * Ask a {@link #chooseComputerMove} running on another thread to return
+     * early. Only the advanced AI searches long enough to need it.
+     */
+    public void cancelComputerMove() {
+        if (advancedAI != null) {
+            advancedAI.stop();
+        }
+    }
+    
+    /**
+     * Play the move {@link #chooseComputerMove} picked (null if it had none).
+     */
+    public void playComputerMove(ChessMove move) {
+        if (move != null) {
+            applyMove(move, true);
+        } else {
+            System.out.println("Computer has no legal move.");
+            setGameEnded(true);
+        }
+    }
+    
+    public boolean canUndo() {
+        return historySize > 0;
+    }
+    
+    public boolean canRedo() {
+        return historySize < historyMoves.size();
+    }
+    
+    /**
+     * Take back the last move played. Each step restores the position from its
+     * undo record, without replaying the game.
+     * 
+     * @return false if there was nothing to undo
+     */
+    public boolean undoMove() {
+        if (!canUndo()) {
+            return false;
+        }
+        positionCounts.merge(TranspositionTable.hash(board, currentPlayer), -1, Integer::sum);
+        historySize--;
+        ChessMove move = historyMoves.get(historySize);
+        board.undoMove(move, historyUndos.get(historySize));
+        moveCount--;
+        changedSquares |= move.touchedSquares();
+        switchTurn();
+        status = null;
+        return true;
+    }
+    
+    /**
+     * Play again the last move taken back, as long as no other move was played
+     * since.
+     * 
+     * @return false if there was nothing to redo
+     */
+    public boolean redoMove() {
+        if (!canRedo()) {
+            return false;
+        }
+        ChessMove move = historyMoves.get(historySize);
+        board.applyMove(move, historyUndos.get(historySize));
+        historySize++;
+        moveCount++;
+        changedSquares |= move.touchedSquares();
+        switchTurn();
+        positionCounts.merge(TranspositionTable.hash(board, currentPlayer), 1, Integer::sum);
+        status = null;
+        return true;
+    }
+    
+    /**
+     * Status of the current position. It is worked out on the first call after
+     * each move and then reused, so asking repeatedly costs nothing.
+     */
+    public GameStatus getStatus() {
+        if (status == null) {
+            int repetitions = positionCounts.getOrDefault(TranspositionTable.hash(board, currentPlayer), 0);
+            status = GameStatus.compute(board, currentPlayer, repetitions);
+        }
+        return status;
+    }
+    
+    /**
+     * The squares changed by the moves played since the last call, one bit per
+     * square (bit row * 8 + col), so that a view can redraw just those.
+     */
+    public long takeChangedSquares() {
+        long squares = changedSquares;
+        changedSquares = 0;
+        return squares;
     }
     
     public int getMoveCount() {
@@ -118,9 +284,73 @@ public class ChessGameEngine {
     }
     
     public void setGameEnded(boolean ended) {
+        if (ended != gameEnded) {
+            if (ended) {
+                EngineMetrics.getDefault().gameEnded();
+            } else {
+                EngineMetrics.getDefault().gameStarted();
+            }
+        }
         this.gameEnded = ended;
     }
 
+    /**
+     * Fill in and commit a JFR event for an AI move decision. The position
+     * details cost a move generation, so they are only gathered while recording.
+     */
+    private void recordChooseMove(ChooseMoveEvent event, ChessBoard position, ChessColor color, int ply,
+            ChessMove move, boolean fromBook) {
+        event.level = aiLevel.name();
+        event.source = fromBook ? "book" : "search";
+        if (!fromBook) {
+            if (advancedAI != null) {
+                event.depth = advancedAI.getSearchDepth();
+                event.nodes = advancedAI.getNodeCount();
+            } else if (intermediateAI != null) {
+                event.depth = 1;
+            }
+        }
+        event.moveNumber = ply + 1;
+        event.pieceCount = position.countPieces();
+        event.legalMoves = position.countLegalMoves(color);
+        event.inCheck = position.isInCheck(color);
+        event.move = move != null ? move.toString() : null;
+        event.commit();
+    }
+    
+    private void applyMove(ChessMove move, boolean byAI) {
+        MoveAppliedEvent event = new MoveAppliedEvent();
+        event.begin();
+        ChessPiece piece = board.getPiece(move.getFromRow(), move.getFromCol());
+        ChessPiece captured = board.getPiece(move.getToRow(), move.getToCol());
+        
+        // A new move replaces whatever could have been redone
+        historyMoves.subList(historySize, historyMoves.size()).clear();
+        historyUndos.subList(historySize, historyUndos.size()).clear();
+        UndoRecord undo = new UndoRecord();
+        board.applyMove(move, undo);
+        historyMoves.add(move);
+        historyUndos.add(undo);
+        historySize++;
+        moveCount++;
+        changedSquares |= move.touchedSquares();
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.moveNumber = moveCount;
+            event.color = currentPlayer.name();
+            event.byAI = byAI;
+            event.move = move.toString();
+            event.piece = piece.getType().name();
+            event.captured = captured != null ? captured.getType().name() : null;
+            event.givesCheck = board.isInCheck(currentPlayer.opposite());
+            event.commit();
+        }
+        switchTurn();
+        positionCounts.merge(TranspositionTable.hash(board, currentPlayer), 1, Integer::sum);
+        status = null;
+    }
+
     private void switchTurn() {
         currentPlayer = currentPlayer.opposite();
     }
@@ -7,6 +7,11 @@ public class ChessMove {
     private final int toRow;
     private final int toCol;
     private final boolean isCastling;
+    
+    private static final int CASTLING_FLAG = 1 << 12;
+    
+    // Algebraic notation piece letters indexed by ChessPieceType ordinal
+    private static final String SAN_LETTERS = "KQRBNP";
 
     public ChessMove(int fromRow, int fromCol, int toRow, int toCol) {
         this(fromRow, fromCol, toRow, toCol, false);
@@ -25,4 +30,130 @@ public class ChessMove {
     public int getToRow()   { return toRow; }
     public int getToCol()   { return toCol; }
     public boolean isCastling() { return isCastling; }
+    
+    /**
+     * Coordinate notation, e.g. "e2e4" (castling is the king's move, "e1g1").
+     */
+    @Override
+    public String toString() {
+        return "" + (char) ('a' + fromCol) + (fromRow + 1) + (char) ('a' + toCol) + (toRow + 1);
+    }
+    
+    /**
+     * Read a move in coordinate notation, e.g. "e2e4". A king moving two files on
+     * {@code board} is castling. A promotion suffix is ignored, since the board
+     * doesn't promote pawns. The move is not checked for legality.
+     * 
+     * @return The move, or null if the text isn't a move
+     */
+    public static ChessMove parse(String text, ChessBoard board) {
+        if (text.length() < 4) {
+            return null;
+        }
+        int fromCol = text.charAt(0) - 'a';
+        int fromRow = text.charAt(1) - '1';
+        int toCol = text.charAt(2) - 'a';
+        int toRow = text.charAt(3) - '1';
+        if (!board.isInsideBoard(fromRow, fromCol) || !board.isInsideBoard(toRow, toCol)) {
+            return null;
+        }
+        ChessPiece piece = board.getPiece(fromRow, fromCol);
+        boolean castling = piece != null && piece.getType() == ChessPieceType.KING
+                && fromRow == toRow && Math.abs(toCol - fromCol) == 2;
+        return new ChessMove(fromRow, fromCol, toRow, toCol, castling);
+    }
+    
+    /**
+     * Standard algebraic notation of this move in the position on {@code board},
+     * before the move is played, e.g. "Nbd7", "exd5" or "O-O". Check and mate
+     * markers are not added.
+     */
+    public String toSan(ChessBoard board) {
+        if (isCastling) {
+            return toCol == 6 ? "O-O" : "O-O-O";
+        }
+        ChessPiece piece = board.getPiece(fromRow, fromCol);
+        boolean capture = board.getPiece(toRow, toCol) != null;
+        StringBuilder san = new StringBuilder(8);
+        if (piece == null || piece.getType() == ChessPieceType.PAWN) {
+            if (capture) {
+                san.append((char) ('a' + fromCol)).append('x');
+            }
+        } else {
+            san.append(SAN_LETTERS.charAt(piece.getType().ordinal()));
+            
+            // Name the file, else the rank, else both, if another such piece can also get there
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            for (int row = 0; row < ChessBoard.SIZE; row++) {
+                for (int col = 0; col < ChessBoard.SIZE; col++) {
+                    ChessPiece other = board.getPiece(row, col);
+                    if ((row != fromRow || col != fromCol) && other != null && other.getType() == piece.getType()
+                            && other.getColor() == piece.getColor()
+                            && board.isLegalMove(row, col, toRow, toCol, piece.getColor())) {
+                        ambiguous = true;
+                        sameFile |= col == fromCol;
+                        sameRank |= row == fromRow;
+                    }
+                }
+            }
+            if (ambiguous && (!sameFile || sameRank)) {
+                san.append((char) ('a' + fromCol));
+            }
+            if (ambiguous && sameFile) {
+                san.append(fromRow + 1);
+            }
+            if (capture) {
+                san.append('x');
+            }
+        }
+        return san.append((char) ('a' + toCol)).append(toRow + 1).toString();
+    }
+
+    /**
+     * The squares this move changes, one bit per square (bit row * 8 + col): the
+     * from and to squares, plus the rook's squares when castling. The board has
+     * no en passant captures or promotions, so nothing else can change.
+     */
+    public long touchedSquares() {
+        long squares = square(fromRow, fromCol) | square(toRow, toCol);
+        if (isCastling) {
+            if (toCol == 6) {
+                squares |= square(fromRow, 7) | square(fromRow, 5);
+            } else if (toCol == 2) {
+                squares |= square(fromRow, 0) | square(fromRow, 3);
+            }
+        }
+        return squares;
+    }
+
+    private static long square(int row, int col) {
+        return 1L << (row * ChessBoard.SIZE + col);
+    }
+
+    /**
+     * Pack this move into a single int (see {@link #encode}).
+     */
+    public int encode() {
+        return encode(fromRow, fromCol, toRow, toCol, isCastling);
+    }
+    
+    /**
+     * Compact move representation used by the search so that move lists can
+     * live in plain int arrays: 3 bits per coordinate plus a castling flag.
+     */
+    public static int encode(int fromRow, int fromCol, int toRow, int toCol, boolean isCastling) {
+        return fromRow | (fromCol << 3) | (toRow << 6) | (toCol << 9) | (isCastling ? CASTLING_FLAG : 0);
+    }
+    
+    public static ChessMove decode(int move) {
+        return new ChessMove(fromRow(move), fromCol(move), toRow(move), toCol(move), isCastling(move));
+    }
+    
+    public static int fromRow(int move) { return move & 7; }
+    public static int fromCol(int move) { return (move >>> 3) & 7; }
+    public static int toRow(int move)   { return (move >>> 6) & 7; }
+    public static int toCol(int move)   { return (move >>> 9) & 7; }
+    public static boolean isCastling(int move) { return (move & CASTLING_FLAG) != 0; }
 }
@@ -10,6 +10,23 @@ public class ChessPiece {
 	        this.color = color;
 	    }
 
+	    // Pieces are immutable, so one instance of each kind can be shared by every board
+	    private static final ChessPiece[][] SHARED = new ChessPiece[ChessColor.values().length][ChessPieceType.values().length];
+	    static {
+	        for (ChessColor color : ChessColor.values()) {
+	            for (ChessPieceType type : ChessPieceType.values()) {
+	                SHARED[color.ordinal()][type.ordinal()] = new ChessPiece(type, color);
+	            }
+	        }
+	    }
+
+	    /**
+	     * Shared instance of a piece, for setting up positions without allocating.
+	     */
+	    public static ChessPiece of(ChessPieceType type, ChessColor color) {
+	        return SHARED[color.ordinal()][type.ordinal()];
+	    }
+
 	    public ChessPieceType getType() {
 	        return type;
 	    }
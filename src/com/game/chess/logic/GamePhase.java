@@ -0,0 +1,50 @@
+package com.game.chess.logic;
+
+/**
+ * Rough stage of the game, used to break down statistics.
+ */
+public enum GamePhase {
+	OPENING,
+	MIDDLEGAME,
+	ENDGAME;
+	
+	// The first ten moves of each side count as the opening
+	private static final int OPENING_PLIES = 20;
+	
+	// Minor pieces count 1, rooks 2 and queens 4: 24 at the start
+	private static final int ENDGAME_MATERIAL = 6;
+	
+	/**
+	 * Phase of a position, from the number of moves played and the pieces left.
+	 */
+	public static GamePhase of(ChessBoard board, int moveCount) {
+		int material = 0;
+		for (int row = 0; row < ChessBoard.SIZE; row++) {
+			for (int col = 0; col < ChessBoard.SIZE; col++) {
+				ChessPiece piece = board.getPiece(row, col);
+				if (piece == null) {
+					continue;
+				}
+				switch (piece.getType()) {
+					case KNIGHT:
+					case BISHOP:
+						material += 1;
+						break;
+					case ROOK:
+						material += 2;
+						break;
+					case QUEEN:
+						material += 4;
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		
+		if (material <= ENDGAME_MATERIAL) {
+			return ENDGAME;
+		}
+		return moveCount < OPENING_PLIES ? OPENING : MIDDLEGAME;
+	}
+}
@@ -0,0 +1,129 @@
+package com.game.chess.logic;
+
+/**
+ * Everything the GUI needs to know about a position, computed once: whether
+ * the side to move is in check, its legal moves, and whether the game is over.
+ * {@link ChessGameEngine#getStatus()} keeps one until the next move.
+ */
+public final class GameStatus {
+
+	public enum DrawReason {
+		STALEMATE,
+		THREEFOLD_REPETITION,
+		FIFTY_MOVE_RULE,
+		INSUFFICIENT_MATERIAL
+	}
+
+	private final ChessColor sideToMove;
+	private final boolean inCheck;
+	private final int[] legalMoves; // encoded, see ChessMove.encode
+	private final long[] destinations; // by from square (row * 8 + col), one bit per to square
+	private final DrawReason drawReason;
+
+	private GameStatus(ChessColor sideToMove, boolean inCheck, int[] legalMoves, long[] destinations,
+			DrawReason drawReason) {
+		this.sideToMove = sideToMove;
+		this.inCheck = inCheck;
+		this.legalMoves = legalMoves;
+		this.destinations = destinations;
+		this.drawReason = drawReason;
+	}
+
+	/**
+	 * Work out the status of {@code board} with {@code sideToMove} to play.
+	 *
+	 * @param repetitions How many times this position has occurred, counting now
+	 */
+	static GameStatus compute(ChessBoard board, ChessColor sideToMove, int repetitions) {
+		int[] moves = new int[256];
+		long[] destinations = new long[ChessBoard.SIZE * ChessBoard.SIZE];
+		int count = 0;
+		for (int fromRow = 0; fromRow < ChessBoard.SIZE; fromRow++) {
+			for (int fromCol = 0; fromCol < ChessBoard.SIZE; fromCol++) {
+				ChessPiece piece = board.getPiece(fromRow, fromCol);
+				if (piece == null || piece.getColor() != sideToMove) {
+					continue;
+				}
+
+				boolean isKing = piece.getType() == ChessPieceType.KING;
+				for (int toRow = 0; toRow < ChessBoard.SIZE; toRow++) {
+					for (int toCol = 0; toCol < ChessBoard.SIZE; toCol++) {
+						if (board.isLegalMove(fromRow, fromCol, toRow, toCol, sideToMove)) {
+							boolean isCastling = isKing && fromRow == toRow && Math.abs(toCol - fromCol) == 2;
+							moves[count++] = ChessMove.encode(fromRow, fromCol, toRow, toCol, isCastling);
+							destinations[fromRow * ChessBoard.SIZE + fromCol] |= 1L << (toRow * ChessBoard.SIZE + toCol);
+						}
+					}
+				}
+			}
+		}
+		int[] legalMoves = new int[count];
+		System.arraycopy(moves, 0, legalMoves, 0, count);
+
+		boolean inCheck = board.isInCheck(sideToMove);
+		DrawReason drawReason = null;
+		if (count == 0) {
+			drawReason = inCheck ? null : DrawReason.STALEMATE;
+		} else if (repetitions >= 3) {
+			drawReason = DrawReason.THREEFOLD_REPETITION;
+		} else if (board.getHalfmoveClock() >= 100) {
+			drawReason = DrawReason.FIFTY_MOVE_RULE;
+		} else if (board.isInsufficientMaterial()) {
+			drawReason = DrawReason.INSUFFICIENT_MATERIAL;
+		}
+		return new GameStatus(sideToMove, inCheck, legalMoves, destinations, drawReason);
+	}
+
+	public ChessColor getSideToMove() {
+		return sideToMove;
+	}
+
+	public boolean isInCheck() {
+		return inCheck;
+	}
+
+	public boolean isCheckmate() {
+		return inCheck && legalMoves.length == 0;
+	}
+
+	public boolean isStalemate() {
+		return !inCheck && legalMoves.length == 0;
+	}
+
+	public boolean isDraw() {
+		return drawReason != null;
+	}
+
+	// Null unless the game is drawn
+	public DrawReason getDrawReason() {
+		return drawReason;
+	}
+
+	public boolean isGameOver() {
+		return legalMoves.length == 0 || drawReason != null;
+	}
+
+	public int getLegalMoveCount() {
+		return legalMoves.length;
+	}
+
+	public ChessMove getLegalMove(int index) {
+		return ChessMove.decode(legalMoves[index]);
+	}
+
+	/**
+	 * Where the piece on that square can legally go, one bit per square (bit
+	 * row * 8 + col); 0 for an empty square or a piece of the other side.
+	 */
+	public long getLegalDestinations(int row, int col) {
+		return destinations[row * ChessBoard.SIZE + col];
+	}
+
+	public boolean isLegal(int fromRow, int fromCol, int toRow, int toCol) {
+		return (getLegalDestinations(fromRow, fromCol) & (1L << (toRow * ChessBoard.SIZE + toCol))) != 0;
+	}
+
+	public boolean isLegal(ChessMove move) {
+		return isLegal(move.getFromRow(), move.getFromCol(), move.getToRow(), move.getToCol());
+	}
+}
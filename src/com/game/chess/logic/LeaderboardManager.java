@@ -3,6 +3,8 @@ package com.game.chess.logic;
 import java.io.*;
 import java.util.*;
 
+import com.game.chess.metrics.EngineMetrics;
+
 public class LeaderboardManager {
 
     private String leaderboardFile;
@@ -74,12 +76,14 @@ public class LeaderboardManager {
     
     private void saveLeaderboard() {
         String fileToUse = (leaderboardFile != null) ? leaderboardFile : LEADERBOARD_FILE;
+        long startTime = System.nanoTime();
         try (ObjectOutputStream oos = new ObjectOutputStream(
                 new FileOutputStream(fileToUse))) {
             oos.writeObject(entries);
         } catch (IOException e) {
             System.err.println("Error saving leaderboard: " + e.getMessage());
         }
+        EngineMetrics.getDefault().recordLeaderboardWrite(System.nanoTime() - startTime);
     }
 
     public void clearAll() {
@@ -0,0 +1,113 @@
+package com.game.chess.logic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of a search after one completed iteration. Counts are cumulative
+ * since the start of the search.
+ */
+public final class SearchInfo {
+
+	private final int depth;
+	private final int selDepth;
+	private final long nodes;
+	private final long timeNanos;
+	private final int score;
+	private final long hashProbes;
+	private final long hashHits;
+	private final long expandedNodes;
+	private final long betaCutoffs;
+	private final long firstMoveCutoffs;
+	private final List<ChessMove> principalVariation;
+
+	SearchInfo(int depth, int selDepth, long nodes, long timeNanos, int score, long hashProbes, long hashHits,
+			long expandedNodes, long betaCutoffs, long firstMoveCutoffs, List<ChessMove> principalVariation) {
+		this.depth = depth;
+		this.selDepth = selDepth;
+		this.nodes = nodes;
+		this.timeNanos = timeNanos;
+		this.score = score;
+		this.hashProbes = hashProbes;
+		this.hashHits = hashHits;
+		this.expandedNodes = expandedNodes;
+		this.betaCutoffs = betaCutoffs;
+		this.firstMoveCutoffs = firstMoveCutoffs;
+		this.principalVariation = Collections.unmodifiableList(principalVariation);
+	}
+
+	// Nominal depth of the iteration, in plies
+	public int getDepth() {
+		return depth;
+	}
+
+	// Deepest ply reached, including quiescence
+	public int getSelDepth() {
+		return selDepth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getTimeMillis() {
+		return timeNanos / 1_000_000;
+	}
+
+	public long getNodesPerSecond() {
+		return timeNanos == 0 ? 0 : nodes * 1_000_000_000L / timeNanos;
+	}
+
+	/**
+	 * Score of the best move for the side to move, in centipawns (mates are
+	 * within 1000 of ±100000).
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Moves until mate if the score is a mate score: positive when the side to
+	 * move mates, negative when it gets mated, 0 when no mate was found.
+	 */
+	public int getMateInMoves() {
+		if (score > ChessAIAdvanced.MATE_THRESHOLD) {
+			return (ChessAIAdvanced.MATE_SCORE - score + 1) / 2;
+		}
+		if (score < -ChessAIAdvanced.MATE_THRESHOLD) {
+			return -(ChessAIAdvanced.MATE_SCORE + score) / 2;
+		}
+		return 0;
+	}
+
+	public long getHashProbes() {
+		return hashProbes;
+	}
+
+	public long getHashHits() {
+		return hashHits;
+	}
+
+	// Fraction of transposition table probes that found the position
+	public double getHashHitRate() {
+		return hashProbes == 0 ? 0 : (double) hashHits / hashProbes;
+	}
+
+	public long getBetaCutoffs() {
+		return betaCutoffs;
+	}
+
+	// Fraction of searched (non-leaf) nodes that failed high
+	public double getBetaCutoffRate() {
+		return expandedNodes == 0 ? 0 : (double) betaCutoffs / expandedNodes;
+	}
+
+	// Fraction of beta cutoffs caused by the first move tried: a measure of move ordering
+	public double getFirstMoveCutoffRate() {
+		return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+	}
+
+	public List<ChessMove> getPrincipalVariation() {
+		return principalVariation;
+	}
+}
@@ -0,0 +1,13 @@
+package com.game.chess.logic;
+
+/**
+ * Receives progress reports from an AI search.
+ * 
+ * Listeners are called on the thread running the search, once per completed
+ * iteration, so they should return quickly (hand off to the EDT or a queue
+ * for anything slow).
+ */
+public interface SearchListener {
+
+	void onIteration(SearchInfo info);
+}
@@ -0,0 +1,38 @@
+package com.game.chess.logic;
+
+/**
+ * Preallocated working memory for one search thread: per-ply move lists,
+ * move-ordering scores, principal variation lines and undo records, plus a
+ * scratch board the search plays its moves on.
+ * 
+ * One instance is kept per thread and reused across moves and games, so once
+ * it is warmed up the search does not allocate.
+ */
+final class SearchStack {
+
+	static final int MAX_PLY = 64;
+	static final int MAX_MOVES = 256;
+
+	// The search makes and unmakes moves here, never on the caller's board
+	final ChessBoard board = new ChessBoard();
+
+	final int[][] moves = new int[MAX_PLY][MAX_MOVES];
+	final int[][] scores = new int[MAX_PLY][MAX_MOVES];
+	final UndoRecord[] undo = new UndoRecord[MAX_PLY];
+
+	// Triangular PV table: pv[ply] holds the best line found from ply onwards
+	final int[][] pv = new int[MAX_PLY][MAX_PLY];
+	final int[] pvLength = new int[MAX_PLY];
+
+	// Root moves that share the best score, for random tie-breaking
+	final int[] equalMoves = new int[MAX_MOVES];
+	
+	// The same, as of the last iteration that ran to completion
+	final int[] completedMoves = new int[MAX_MOVES];
+
+	SearchStack() {
+		for (int ply = 0; ply < MAX_PLY; ply++) {
+			undo[ply] = new UndoRecord();
+		}
+	}
+}
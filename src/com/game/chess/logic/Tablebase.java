@@ -0,0 +1,314 @@
+package com.game.chess.logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Endgame tablebases for every pawnless ending with up to four pieces
+ * (kings included), as written by {@code com.game.chess.tools.TablebaseGenerator}.
+ * 
+ * Each material combination is one file holding one byte per position:
+ * win/draw/loss for the side to move plus the distance to mate in moves.
+ * Files are memory-mapped, so probing is a single byte read.
+ * 
+ * Positions are indexed with the white king folded into the a1-d4 quadrant
+ * (the other pieces are mirrored with it), which is valid because there are
+ * no pawns. Castling is not part of the tables: positions with castling rights
+ * are not probed.
+ */
+public final class Tablebase {
+
+	public static final int MAX_PIECES = 4;
+	public static final String DEFAULT_DIRECTORY = "tablebases";
+	public static final String DIRECTORY_PROPERTY = "chess.tablebases";
+	public static final String FILE_EXTENSION = ".ctb";
+	
+	/**
+	 * Probe results. Wins are 1..127 (mate in that many moves), losses are
+	 * LOSS + n (mated in n moves, n = 0 means checkmated), draws are 0.
+	 */
+	public static final int NOT_FOUND = -1;
+	public static final int DRAW = 0;
+	public static final int LOSS = 128;
+	public static final int ILLEGAL = 255;
+	
+	// File header: magic number, then the material id
+	public static final int MAGIC = 0x43544231; // "CTB1"
+	public static final int HEADER_SIZE = 8;
+	
+	// Material ids: base-3 counts of queens, rooks, bishops and knights per side
+	public static final int MATERIAL_IDS = 81 * 81;
+	private static final int[] TYPE_WEIGHT = new int[ChessPieceType.values().length];
+	static {
+		TYPE_WEIGHT[ChessPieceType.QUEEN.ordinal()] = 27;
+		TYPE_WEIGHT[ChessPieceType.ROOK.ordinal()] = 9;
+		TYPE_WEIGHT[ChessPieceType.BISHOP.ordinal()] = 3;
+		TYPE_WEIGHT[ChessPieceType.KNIGHT.ordinal()] = 1;
+	}
+	
+	private static final ChessPieceType[] TYPES = ChessPieceType.values();
+	
+	// Scratch arrays for probing a ChessBoard without allocating
+	private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[2][MAX_PIECES]);
+	
+	private static boolean defaultLoaded;
+	private static Tablebase defaultTablebase;
+	
+	private final ByteBuffer[] tables = new ByteBuffer[MATERIAL_IDS];
+	private int tableCount;
+
+	private Tablebase() {
+	}
+	
+	/**
+	 * Memory-map every table file in a directory.
+	 */
+	public static Tablebase open(Path directory) throws IOException {
+		Tablebase tablebase = new Tablebase();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+			for (Path file : files) {
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+					if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+						throw new IOException("Not a tablebase file: " + file);
+					}
+					int materialId = mapped.getInt(4);
+					if (materialId < 0 || materialId >= MATERIAL_IDS
+							|| mapped.capacity() != HEADER_SIZE + tableSize(pieceCount(materialId))) {
+						throw new IOException("Corrupted tablebase file: " + file);
+					}
+					tablebase.tables[materialId] = mapped;
+					tablebase.tableCount++;
+				}
+			}
+		}
+		return tablebase;
+	}
+	
+	/**
+	 * Tablebases shared by all searches: the directory named by the
+	 * {@value #DIRECTORY_PROPERTY} system property, or {@value #DEFAULT_DIRECTORY}
+	 * in the working directory.
+	 * 
+	 * @return The tablebases, or null if there are none
+	 */
+	public static synchronized Tablebase getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			Path directory = Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+			if (Files.isDirectory(directory)) {
+				try {
+					Tablebase tablebase = open(directory);
+					if (tablebase.tableCount > 0) {
+						defaultTablebase = tablebase;
+					}
+				} catch (IOException e) {
+					System.err.println("Error loading tablebases: " + e.getMessage());
+				}
+			}
+		}
+		return defaultTablebase;
+	}
+	
+	public int getTableCount() {
+		return tableCount;
+	}
+	
+	/**
+	 * Probe a position.
+	 * 
+	 * @return Result for the side to move (see {@link #DRAW}, {@link #LOSS}), or
+	 *         {@link #NOT_FOUND} if the position isn't covered
+	 */
+	public int probe(ChessBoard board, ChessColor sideToMove) {
+		if (board.hasCastlingRight(ChessColor.WHITE, true) || board.hasCastlingRight(ChessColor.WHITE, false)
+				|| board.hasCastlingRight(ChessColor.BLACK, true) || board.hasCastlingRight(ChessColor.BLACK, false)) {
+			return NOT_FOUND;
+		}
+		
+		int[][] scratch = SCRATCH.get();
+		int[] codes = scratch[0];
+		int[] squares = scratch[1];
+		int count = 0;
+		for (int row = 0; row < ChessBoard.SIZE; row++) {
+			for (int col = 0; col < ChessBoard.SIZE; col++) {
+				ChessPiece piece = board.getPiece(row, col);
+				if (piece == null) {
+					continue;
+				}
+				if (count == MAX_PIECES || piece.getType() == ChessPieceType.PAWN) {
+					return NOT_FOUND;
+				}
+				codes[count] = pieceCode(piece.getType(), piece.getColor());
+				squares[count] = row * ChessBoard.SIZE + col;
+				count++;
+			}
+		}
+		return probe(codes, squares, count, sideToMove == ChessColor.WHITE);
+	}
+	
+	/**
+	 * Probe a position given as a list of pieces.
+	 * 
+	 * @param codes Piece codes (see {@link #pieceCode}), exactly one king per side
+	 * @param squares Square of each piece, row * 8 + col
+	 * @param count Number of pieces
+	 */
+	public int probe(int[] codes, int[] squares, int count, boolean whiteToMove) {
+		if (count == 2) {
+			return DRAW; // Bare kings
+		}
+		
+		int whiteKing = -1;
+		int blackKing = -1;
+		int whiteKey = 0;
+		int blackKey = 0;
+		for (int i = 0; i < count; i++) {
+			ChessPieceType type = typeOf(codes[i]);
+			boolean white = isWhite(codes[i]);
+			if (type == ChessPieceType.KING) {
+				if (white) whiteKing = squares[i]; else blackKing = squares[i];
+			} else if (white) {
+				whiteKey += TYPE_WEIGHT[type.ordinal()];
+			} else {
+				blackKey += TYPE_WEIGHT[type.ordinal()];
+			}
+		}
+		
+		// Tables are stored with the stronger side as white; otherwise swap colors
+		boolean swap = blackKey > whiteKey;
+		int materialId = swap ? materialId(blackKey, whiteKey) : materialId(whiteKey, blackKey);
+		ByteBuffer table = tables[materialId];
+		if (table == null) {
+			return NOT_FOUND;
+		}
+		
+		int strongKing = swap ? blackKing : whiteKing;
+		int weakKing = swap ? whiteKing : blackKing;
+		int flip = symmetryFor(strongKing);
+		
+		int index = indexPrefix(whiteToMove != swap, strongKing ^ flip, weakKing ^ flip);
+		
+		// Remaining pieces in canonical order: strong side first, then by type
+		for (int side = 0; side < 2; side++) {
+			boolean strong = side == 0;
+			for (int type = 1; type < TYPES.length; type++) {
+				for (int i = 0; i < count; i++) {
+					if (typeOf(codes[i]).ordinal() == type && (isWhite(codes[i]) != swap) == strong) {
+						index = index * 64 + (squares[i] ^ flip);
+					}
+				}
+			}
+		}
+		return table.get(HEADER_SIZE + index) & 0xFF;
+	}
+	
+	public static boolean isWin(int result) {
+		return result >= 1 && result < LOSS;
+	}
+	
+	public static boolean isLoss(int result) {
+		return result >= LOSS && result < ILLEGAL;
+	}
+	
+	/**
+	 * Number of plies until mate (for either side) of a win or loss result.
+	 */
+	public static int pliesToMate(int result) {
+		return isWin(result) ? 2 * result - 1 : 2 * (result - LOSS);
+	}
+	
+	// --- Indexing, shared with the generator ---
+	
+	public static int pieceCode(ChessPieceType type, ChessColor color) {
+		return color == ChessColor.WHITE ? type.ordinal() : type.ordinal() + 8;
+	}
+	
+	public static ChessPieceType typeOf(int code) {
+		return TYPES[code & 7];
+	}
+	
+	public static boolean isWhite(int code) {
+		return code < 8;
+	}
+	
+	public static int materialId(int whiteKey, int blackKey) {
+		return whiteKey * 81 + blackKey;
+	}
+	
+	/**
+	 * Material key of one side's pieces besides the king.
+	 */
+	public static int materialKey(ChessPieceType... types) {
+		int key = 0;
+		for (ChessPieceType type : types) {
+			key += TYPE_WEIGHT[type.ordinal()];
+		}
+		return key;
+	}
+	
+	public static int pieceCount(int materialId) {
+		return 2 + digitSum(materialId / 81) + digitSum(materialId % 81);
+	}
+	
+	private static int digitSum(int key) {
+		int sum = 0;
+		for (; key > 0; key /= 3) {
+			sum += key % 3;
+		}
+		return sum;
+	}
+	
+	/**
+	 * Number of positions in a table with this many pieces.
+	 */
+	public static int tableSize(int pieceCount) {
+		return 2 * 16 * (1 << (6 * (pieceCount - 1)));
+	}
+	
+	/**
+	 * Square XOR mask that moves the given (white) king square into the a1-d4 quadrant.
+	 */
+	public static int symmetryFor(int kingSquare) {
+		int flip = 0;
+		if ((kingSquare & 7) > 3) flip ^= 7;    // mirror files
+		if ((kingSquare >> 3) > 3) flip ^= 56;  // mirror ranks
+		return flip;
+	}
+	
+	/**
+	 * Index contribution of the side to move and both kings; every further
+	 * piece multiplies by 64 and adds its (mirrored) square.
+	 * 
+	 * @param strongKing Stronger side's king square, already inside the quadrant
+	 */
+	public static int indexPrefix(boolean strongToMove, int strongKing, int weakKing) {
+		int quadrant = (strongKing >> 3) * 4 + (strongKing & 7);
+		return ((strongToMove ? 0 : 1) * 16 + quadrant) * 64 + weakKing;
+	}
+	
+	/**
+	 * File name for a material combination, e.g. "KQvKR.ctb".
+	 */
+	public static String fileName(int materialId) {
+		return sideName(materialId / 81) + "v" + sideName(materialId % 81) + FILE_EXTENSION;
+	}
+	
+	private static String sideName(int key) {
+		StringBuilder name = new StringBuilder("K");
+		String[] letters = {"Q", "R", "B", "N"};
+		int[] weights = {27, 9, 3, 1};
+		for (int i = 0; i < letters.length; i++) {
+			for (int n = (key / weights[i]) % 3; n > 0; n--) {
+				name.append(letters[i]);
+			}
+		}
+		return name.toString();
+	}
+}
@@ -0,0 +1,375 @@
+package com.game.chess.logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Transposition table: search results keyed by a Zobrist hash of the position,
+ * held off the Java heap.
+ *
+ * The table can live in a memory-mapped file, in which case it survives
+ * restarts: the next run maps the same file and every search starts from what
+ * earlier games already found, with nothing to deserialize. It can also be
+ * allocated in plain direct memory for a single run.
+ *
+ * Entries are 16 bytes (key, packed data) in buckets of four, one cache line
+ * per bucket. The key is stored XORed with the data, so an entry torn by two
+ * threads writing at once just fails to match instead of returning garbage.
+ * The table never grows: a new result replaces the least useful entry of its
+ * bucket, preferring entries from old searches (age) and then shallow ones.
+ */
+public final class TranspositionTable {
+
+	public static final String FILE_PROPERTY = "chess.hash.file";
+	public static final String SIZE_PROPERTY = "chess.hash.size";
+	public static final int DEFAULT_SIZE_MB = 64;
+
+	// Bound types
+	public static final int NONE = 0;
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	// File header: magic number, format version, bucket count, search generation
+	private static final int MAGIC = 0x43545431; // "CTT1"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int GENERATION_OFFSET = 12;
+
+	private static final int ENTRY_SIZE = 16;
+	private static final int BUCKET_ENTRIES = 4;
+	private static final int BUCKET_SIZE = ENTRY_SIZE * BUCKET_ENTRIES;
+
+	// Data layout: move (13 bits), depth (7), bound (2), generation (18), score (24, signed)
+	private static final int DEPTH_SHIFT = 13;
+	private static final int BOUND_SHIFT = 20;
+	private static final int GENERATION_SHIFT = 22;
+	private static final int SCORE_SHIFT = 40;
+	private static final int GENERATION_MASK = (1 << 18) - 1;
+	private static final int MAX_DEPTH = 127;
+
+	// Zobrist keys. The seed is fixed because keys are stored in table files: never change it.
+	private static final long ZOBRIST_SEED = 0x5EEDC0FFEEL;
+	private static final long[][] PIECE_KEYS = new long[12][64];
+	private static final long[] CASTLING_KEYS = new long[16];
+	private static final long BLACK_TO_MOVE_KEY;
+
+	static {
+		Random random = new Random(ZOBRIST_SEED);
+		for (long[] keys : PIECE_KEYS) {
+			for (int square = 0; square < 64; square++) {
+				keys[square] = random.nextLong();
+			}
+		}
+		for (int i = 0; i < CASTLING_KEYS.length; i++) {
+			CASTLING_KEYS[i] = random.nextLong();
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+	}
+
+	private static boolean defaultLoaded;
+	private static TranspositionTable defaultTable;
+
+	/**
+	 * The memory behind the table. Replaced as a whole on resize, so a search
+	 * running meanwhile keeps using a consistent buffer and mask.
+	 */
+	private static final class Storage {
+		final ByteBuffer buffer;
+		final long bucketMask;
+		final long entryCount;
+
+		Storage(ByteBuffer buffer, long bucketCount) {
+			this.buffer = buffer;
+			this.bucketMask = bucketCount - 1;
+			this.entryCount = bucketCount * BUCKET_ENTRIES;
+		}
+	}
+
+	// Backing file, or null for a table in direct memory
+	private final Path file;
+	private volatile Storage storage;
+	private int generation;
+
+	// Probe statistics; updated without synchronization, so approximate under concurrent searches
+	private long probes;
+	private long hits;
+
+	private TranspositionTable(Path file, Storage storage) {
+		this.file = file;
+		this.storage = storage;
+		this.generation = storage.buffer.getInt(GENERATION_OFFSET);
+	}
+
+	/**
+	 * Allocate an empty table in direct memory. It is lost when the JVM exits.
+	 */
+	public static TranspositionTable allocate(int sizeMb) {
+		return new TranspositionTable(null, allocateStorage(sizeMb));
+	}
+
+	/**
+	 * Map a table file, creating it if needed. An existing table of the same
+	 * size is used as is; a table of another size or format is cleared.
+	 */
+	public static TranspositionTable open(Path file, int sizeMb) throws IOException {
+		return new TranspositionTable(file, mapStorage(file, sizeMb));
+	}
+
+	private static Storage allocateStorage(int sizeMb) {
+		long bucketCount = bucketCount(sizeMb);
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) (HEADER_SIZE + bucketCount * BUCKET_SIZE));
+		writeHeader(buffer, bucketCount);
+		return new Storage(buffer, bucketCount);
+	}
+
+	private static Storage mapStorage(Path file, int sizeMb) throws IOException {
+		long bucketCount = bucketCount(sizeMb);
+		long tableSize = HEADER_SIZE + bucketCount * BUCKET_SIZE;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE)) {
+			// The file is never truncated (an older mapping may still be in use), so it can be larger than the table
+			boolean reusable = channel.size() >= tableSize;
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, tableSize);
+			if (!reusable || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION
+					|| mapped.getInt(8) != (int) bucketCount) {
+				for (long offset = 0; offset < tableSize; offset += 8) {
+					mapped.putLong((int) offset, 0L);
+				}
+				writeHeader(mapped, bucketCount);
+			}
+			return new Storage(mapped, bucketCount);
+		}
+	}
+
+	/**
+	 * The persistent table shared by all searches: the file named by the
+	 * {@value #FILE_PROPERTY} system property, sized by {@value #SIZE_PROPERTY}
+	 * (in MB, default {@value #DEFAULT_SIZE_MB}).
+	 *
+	 * @return The table, or null if no file is configured
+	 */
+	public static synchronized TranspositionTable getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			String file = System.getProperty(FILE_PROPERTY);
+			if (file != null) {
+				try {
+					int sizeMb = Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE_MB);
+					defaultTable = open(Paths.get(file), sizeMb);
+				} catch (IOException | IllegalArgumentException e) {
+					System.err.println("Error opening transposition table: " + e.getMessage());
+				}
+			}
+		}
+		return defaultTable;
+	}
+
+	private static long bucketCount(int sizeMb) {
+		if (sizeMb < 1 || sizeMb > 1024) {
+			throw new IllegalArgumentException("Transposition table size must be 1-1024 MB: " + sizeMb);
+		}
+		// Largest power of two that fits, so a bucket is picked with a mask
+		return Long.highestOneBit((long) sizeMb * 1024 * 1024 / BUCKET_SIZE);
+	}
+
+	private static void writeHeader(ByteBuffer buffer, long bucketCount) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, (int) bucketCount);
+		buffer.putInt(GENERATION_OFFSET, 0);
+	}
+
+	/**
+	 * Zobrist hash of a position with the given side to move.
+	 */
+	public static long hash(ChessBoard board, ChessColor sideToMove) {
+		long hash = sideToMove == ChessColor.BLACK ? BLACK_TO_MOVE_KEY : 0L;
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				ChessPiece piece = board.getPiece(row, col);
+				if (piece != null) {
+					int kind = piece.getType().ordinal() + (piece.getColor() == ChessColor.WHITE ? 0 : 6);
+					hash ^= PIECE_KEYS[kind][row * 8 + col];
+				}
+			}
+		}
+		int castling = (board.hasCastlingRight(ChessColor.WHITE, true) ? 1 : 0)
+				| (board.hasCastlingRight(ChessColor.WHITE, false) ? 2 : 0)
+				| (board.hasCastlingRight(ChessColor.BLACK, true) ? 4 : 0)
+				| (board.hasCastlingRight(ChessColor.BLACK, false) ? 8 : 0);
+		return hash ^ CASTLING_KEYS[castling];
+	}
+
+	/**
+	 * Start a new search. Entries written by earlier searches age by one step,
+	 * and the generation is saved in the table so ages carry over restarts.
+	 */
+	public synchronized void newSearch() {
+		generation = (generation + 1) & GENERATION_MASK;
+		storage.buffer.putInt(GENERATION_OFFSET, generation);
+	}
+
+	/**
+	 * Change the size of the table. The contents are lost; a file-backed table
+	 * stays in the same file.
+	 */
+	public synchronized void resize(int sizeMb) throws IOException {
+		Storage resized = file != null ? mapStorage(file, sizeMb) : allocateStorage(sizeMb);
+		resized.buffer.putInt(GENERATION_OFFSET, generation);
+		storage = resized;
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @return The packed entry data (read it with {@link #move}, {@link #depth},
+	 *         {@link #bound} and {@link #score}), or 0 if the position isn't stored
+	 */
+	public long probe(long hash) {
+		Storage storage = this.storage;
+		ByteBuffer buffer = storage.buffer;
+		int bucket = bucketOffset(storage, hash);
+		probes++;
+		for (int i = 0; i < BUCKET_ENTRIES; i++) {
+			int offset = bucket + i * ENTRY_SIZE;
+			long data = buffer.getLong(offset + 8);
+			if ((buffer.getLong(offset) ^ data) == hash && bound(data) != NONE) {
+				hits++;
+				return data;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Store a search result, replacing the same position or the least valuable
+	 * entry of its bucket.
+	 *
+	 * @param move Encoded best move, or 0 to keep the move already stored
+	 */
+	public void store(long hash, int move, int depth, int bound, int score) {
+		Storage storage = this.storage;
+		ByteBuffer buffer = storage.buffer;
+		int bucket = bucketOffset(storage, hash);
+		int currentGeneration = generation;
+		int replace = bucket;
+		int lowestValue = Integer.MAX_VALUE;
+
+		for (int i = 0; i < BUCKET_ENTRIES; i++) {
+			int offset = bucket + i * ENTRY_SIZE;
+			long data = buffer.getLong(offset + 8);
+			if ((buffer.getLong(offset) ^ data) == hash) {
+				if (move == 0) {
+					move = move(data);
+				}
+				replace = offset;
+				break;
+			}
+			// Empty entries first, then old ones, then shallow ones
+			int age = (currentGeneration - generation(data)) & GENERATION_MASK;
+			int value = bound(data) == NONE ? Integer.MIN_VALUE : depth(data) - 8 * age;
+			if (value < lowestValue) {
+				lowestValue = value;
+				replace = offset;
+			}
+		}
+
+		long data = (move & 0x1FFFL)
+				| ((long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) currentGeneration << GENERATION_SHIFT)
+				| ((long) score << SCORE_SHIFT);
+		buffer.putLong(replace, hash ^ data);
+		buffer.putLong(replace + 8, data);
+	}
+
+	private static int bucketOffset(Storage storage, long hash) {
+		return HEADER_SIZE + (int) (hash & storage.bucketMask) * BUCKET_SIZE;
+	}
+
+	/**
+	 * Write changes of a file-backed table to disk now rather than when the
+	 * operating system gets to it.
+	 */
+	public void flush() {
+		ByteBuffer buffer = storage.buffer;
+		if (buffer instanceof MappedByteBuffer) {
+			((MappedByteBuffer) buffer).force();
+		}
+	}
+
+	/**
+	 * Clear every entry.
+	 */
+	public synchronized void clear() {
+		ByteBuffer buffer = storage.buffer;
+		for (int offset = HEADER_SIZE; offset < buffer.capacity(); offset += 8) {
+			buffer.putLong(offset, 0L);
+		}
+	}
+
+	public long getEntryCount() {
+		return storage.entryCount;
+	}
+
+	public int getSizeMb() {
+		return (int) ((storage.entryCount * ENTRY_SIZE) >> 20);
+	}
+
+	/**
+	 * Fraction of the table in use, estimated from its first thousand entries.
+	 */
+	public double getFill() {
+		Storage storage = this.storage;
+		int sample = (int) Math.min(1000, storage.entryCount);
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			if (bound(storage.buffer.getLong(HEADER_SIZE + i * ENTRY_SIZE + 8)) != NONE) {
+				used++;
+			}
+		}
+		return (double) used / sample;
+	}
+
+	/**
+	 * Fraction of probes since the last {@link #resetStatistics} that found their position.
+	 */
+	public double getHitRate() {
+		long probes = this.probes;
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	public void resetStatistics() {
+		probes = 0;
+		hits = 0;
+	}
+
+	// --- Packed entry data ---
+
+	public static int move(long data) {
+		return (int) (data & 0x1FFF);
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 3;
+	}
+
+	public static int score(long data) {
+		return (int) (data >> SCORE_SHIFT);
+	}
+
+	private static int generation(long data) {
+		return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+	}
+}
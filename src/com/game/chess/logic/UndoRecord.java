@@ -0,0 +1,18 @@
+package com.game.chess.logic;
+
+/**
+ * What {@link ChessBoard#makeMove(int, UndoRecord)} overwrites, so that
+ * {@link ChessBoard#unmakeMove(int, UndoRecord)} can put it back.
+ * Instances are meant to be reused, one per search ply.
+ *
+ * {@link ChessBoard#applyMove(ChessMove, UndoRecord)} also saves the FEN
+ * clocks and en passant square, for {@link ChessBoard#undoMove(ChessMove, UndoRecord)}.
+ */
+public class UndoRecord {
+
+	ChessPiece capturedPiece;
+	int castlingState;
+	int enPassantSquare;
+	int halfmoveClock;
+	int fullmoveNumber;
+}
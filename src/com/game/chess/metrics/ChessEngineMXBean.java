@@ -0,0 +1,48 @@
+package com.game.chess.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the chess engine, registered as
+ * {@value EngineMetrics#OBJECT_NAME} in the platform MBean server.
+ */
+public interface ChessEngineMXBean {
+
+	// Games started and not yet over
+	int getActiveGames();
+
+	// AI moves decided per AI level, book moves included
+	Map<String, Long> getAIMovesPerLevel();
+
+	// Time per AI move decision, per AI level
+	Map<String, LatencySummary> getMoveLatency();
+
+	// Time per AI move decision, per AI level and game phase ("ADVANCED/ENDGAME")
+	Map<String, LatencySummary> getMoveLatencyByPhase();
+
+	// The same as a text table
+	String latencyReport();
+
+	// Advanced AI search speed over all searches since the last reset
+	double getNodesPerSecond();
+
+	// Fraction of the transposition table in use (0 without a table)
+	double getHashFill();
+
+	// Fraction of transposition table probes that hit since the last reset
+	double getHashHitRate();
+
+	LatencySummary getLeaderboardWriteLatency();
+
+	// Search depth of the Advanced AI, in plies
+	int getSearchDepth();
+
+	void setSearchDepth(int searchDepth);
+
+	// Transposition table size; 0 if there is no table
+	int getHashSizeMb();
+
+	void setHashSizeMb(int sizeMb);
+
+	void resetStatistics();
+}
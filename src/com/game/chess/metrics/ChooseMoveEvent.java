@@ -0,0 +1,48 @@
+package com.game.chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One AI move decision, from the opening book or a search. The event's
+ * duration is the time the AI took; the position fields describe how hard
+ * the position was.
+ */
+@Name("com.game.chess.ChooseMove")
+@Label("AI Choose Move")
+@Category({"Chess", "AI"})
+@Description("An AI picking its move")
+public class ChooseMoveEvent extends Event {
+
+	@Label("AI Level")
+	public String level;
+
+	@Label("Source")
+	@Description("\"book\" or \"search\"")
+	public String source;
+
+	@Label("Search Depth")
+	public int depth;
+
+	@Label("Nodes")
+	@Description("Positions searched (advanced AI only)")
+	public long nodes;
+
+	@Label("Move Number")
+	public int moveNumber;
+
+	@Label("Pieces")
+	public int pieceCount;
+
+	@Label("Legal Moves")
+	public int legalMoves;
+
+	@Label("In Check")
+	public boolean inCheck;
+
+	@Label("Move")
+	public String move;
+}
@@ -0,0 +1,221 @@
+package com.game.chess.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessGameEngine.AILevel;
+import com.game.chess.logic.GamePhase;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Central registry of live engine metrics, exposed over JMX as
+ * {@value #OBJECT_NAME}. The game engine and leaderboard report into it;
+ * everything it records is lock-free and allocation-free.
+ */
+public final class EngineMetrics implements ChessEngineMXBean {
+
+	public static final String OBJECT_NAME = "com.game.chess:type=Engine";
+
+	private static EngineMetrics defaultMetrics;
+
+	private final AtomicInteger activeGames = new AtomicInteger();
+	private final LatencyHistogram[] moveLatency = new LatencyHistogram[AILevel.values().length];
+	private final LatencyHistogram[][] phaseLatency = new LatencyHistogram[AILevel.values().length][GamePhase.values().length];
+	private final LongAdder searchNodes = new LongAdder();
+	private final LongAdder searchNanos = new LongAdder();
+	private final LatencyHistogram leaderboardWriteLatency = new LatencyHistogram();
+
+	EngineMetrics() {
+		for (int i = 0; i < moveLatency.length; i++) {
+			moveLatency[i] = new LatencyHistogram();
+			for (int j = 0; j < phaseLatency[i].length; j++) {
+				phaseLatency[i][j] = new LatencyHistogram();
+			}
+		}
+	}
+
+	/**
+	 * The metrics shared by all games, registered with the platform MBean server
+	 * on first use.
+	 */
+	public static synchronized EngineMetrics getDefault() {
+		if (defaultMetrics == null) {
+			defaultMetrics = new EngineMetrics();
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(defaultMetrics, new ObjectName(OBJECT_NAME));
+			} catch (JMException e) {
+				System.err.println("Error registering engine MBean: " + e.getMessage());
+			}
+		}
+		return defaultMetrics;
+	}
+
+	public void gameStarted() {
+		activeGames.incrementAndGet();
+	}
+
+	public void gameEnded() {
+		activeGames.decrementAndGet();
+	}
+
+	/**
+	 * Record one AI move decision.
+	 * 
+	 * @param nodes Positions searched, or 0 if the AI doesn't search (or the move came from the book)
+	 */
+	public void recordAIMove(AILevel level, GamePhase phase, long nanos, long nodes) {
+		moveLatency[level.ordinal()].record(nanos);
+		phaseLatency[level.ordinal()][phase.ordinal()].record(nanos);
+		if (nodes > 0) {
+			searchNodes.add(nodes);
+			searchNanos.add(nanos);
+		}
+	}
+
+	public void recordLeaderboardWrite(long nanos) {
+		leaderboardWriteLatency.record(nanos);
+	}
+
+	@Override
+	public int getActiveGames() {
+		return activeGames.get();
+	}
+
+	@Override
+	public Map<String, Long> getAIMovesPerLevel() {
+		Map<String, Long> moves = new LinkedHashMap<>();
+		for (AILevel level : AILevel.values()) {
+			if (level != AILevel.NONE) {
+				moves.put(level.name(), moveLatency[level.ordinal()].snapshot().getCount());
+			}
+		}
+		return moves;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getMoveLatency() {
+		Map<String, LatencySummary> latency = new LinkedHashMap<>();
+		for (AILevel level : AILevel.values()) {
+			if (level != AILevel.NONE) {
+				latency.put(level.name(), LatencySummary.of(moveLatency[level.ordinal()].snapshot()));
+			}
+		}
+		return latency;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getMoveLatencyByPhase() {
+		Map<String, LatencySummary> latency = new LinkedHashMap<>();
+		for (AILevel level : AILevel.values()) {
+			if (level != AILevel.NONE) {
+				for (GamePhase phase : GamePhase.values()) {
+					latency.put(level.name() + "/" + phase.name(),
+							LatencySummary.of(phaseLatency[level.ordinal()][phase.ordinal()].snapshot()));
+				}
+			}
+		}
+		return latency;
+	}
+	
+	/**
+	 * Text table of AI move latency per level and game phase, in milliseconds.
+	 */
+	@Override
+	public String latencyReport() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-13s %-11s %8s %9s %9s %9s %9s%n", "Level", "Phase", "Moves", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+		for (AILevel level : AILevel.values()) {
+			if (level == AILevel.NONE) {
+				continue;
+			}
+			for (GamePhase phase : GamePhase.values()) {
+				appendReportLine(report, level.name(), phase.name(), phaseLatency[level.ordinal()][phase.ordinal()]);
+			}
+			appendReportLine(report, level.name(), "ALL", moveLatency[level.ordinal()]);
+		}
+		return report.toString();
+	}
+	
+	private static void appendReportLine(StringBuilder report, String level, String phase, LatencyHistogram histogram) {
+		LatencySummary summary = LatencySummary.of(histogram.snapshot());
+		report.append(String.format("%-13s %-11s %8d %9.2f %9.2f %9.2f %9.2f%n", level, phase, summary.getCount(),
+				summary.getP50Millis(), summary.getP90Millis(), summary.getP99Millis(), summary.getMaxMillis()));
+	}
+
+	@Override
+	public double getNodesPerSecond() {
+		long nanos = searchNanos.sum();
+		return nanos == 0 ? 0 : searchNodes.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public double getHashFill() {
+		TranspositionTable table = TranspositionTable.getDefault();
+		return table != null ? table.getFill() : 0;
+	}
+
+	@Override
+	public double getHashHitRate() {
+		TranspositionTable table = TranspositionTable.getDefault();
+		return table != null ? table.getHitRate() : 0;
+	}
+
+	@Override
+	public LatencySummary getLeaderboardWriteLatency() {
+		return LatencySummary.of(leaderboardWriteLatency.snapshot());
+	}
+
+	@Override
+	public int getSearchDepth() {
+		return ChessAIAdvanced.getDefaultSearchDepth();
+	}
+
+	@Override
+	public void setSearchDepth(int searchDepth) {
+		ChessAIAdvanced.setDefaultSearchDepth(searchDepth);
+	}
+
+	@Override
+	public int getHashSizeMb() {
+		TranspositionTable table = TranspositionTable.getDefault();
+		return table != null ? table.getSizeMb() : 0;
+	}
+
+	@Override
+	public void setHashSizeMb(int sizeMb) {
+		TranspositionTable table = TranspositionTable.getDefault();
+		if (table == null) {
+			throw new IllegalStateException("No transposition table (start with -D" + TranspositionTable.FILE_PROPERTY + "=<file>)");
+		}
+		try {
+			table.resize(sizeMb);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error resizing transposition table: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void resetStatistics() {
+		for (int i = 0; i < moveLatency.length; i++) {
+			moveLatency[i].reset();
+			for (LatencyHistogram histogram : phaseLatency[i]) {
+				histogram.reset();
+			}
+		}
+		searchNodes.reset();
+		searchNanos.reset();
+		leaderboardWriteLatency.reset();
+		TranspositionTable table = TranspositionTable.getDefault();
+		if (table != null) {
+			table.resetStatistics();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.game.chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One static evaluation inside the advanced search. Like move generation,
+ * only one call in {@link #SAMPLE_INTERVAL} is recorded.
+ */
+@Name("com.game.chess.Evaluation")
+@Label("Evaluation (sampled)")
+@Category({"Chess", "AI"})
+@Description("A sampled static evaluation in the search")
+public class EvaluationEvent extends Event {
+
+	public static final int SAMPLE_INTERVAL = 1024;
+
+	@Label("Pieces")
+	public int pieceCount;
+
+	@Label("Score")
+	public int score;
+}
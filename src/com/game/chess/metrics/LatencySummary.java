@@ -0,0 +1,53 @@
+package com.game.chess.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Percentiles of a latency histogram, in milliseconds. Shown by JMX clients as
+ * one composite value.
+ */
+public final class LatencySummary {
+
+	private final long count;
+	private final double p50Millis;
+	private final double p90Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	@ConstructorProperties({"count", "p50Millis", "p90Millis", "p99Millis", "maxMillis"})
+	public LatencySummary(long count, double p50Millis, double p90Millis, double p99Millis, double maxMillis) {
+		this.count = count;
+		this.p50Millis = p50Millis;
+		this.p90Millis = p90Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	public static LatencySummary of(LatencyHistogram.Snapshot snapshot) {
+		return new LatencySummary(snapshot.getCount(),
+				snapshot.getPercentileNanos(50) / 1e6,
+				snapshot.getPercentileNanos(90) / 1e6,
+				snapshot.getPercentileNanos(99) / 1e6,
+				snapshot.getMaxNanos() / 1e6);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+}
@@ -0,0 +1,36 @@
+package com.game.chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A move applied to the game board by the game engine, by a player or the AI.
+ */
+@Name("com.game.chess.MoveApplied")
+@Label("Move Applied")
+@Category({"Chess", "Game"})
+public class MoveAppliedEvent extends Event {
+
+	@Label("Move Number")
+	public int moveNumber;
+
+	@Label("Color")
+	public String color;
+
+	@Label("By AI")
+	public boolean byAI;
+
+	@Label("Move")
+	public String move;
+
+	@Label("Piece")
+	public String piece;
+
+	@Label("Captured")
+	public String captured;
+
+	@Label("Gives Check")
+	public boolean givesCheck;
+}
@@ -0,0 +1,26 @@
+package com.game.chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One legal move generation inside the advanced search. There are millions of
+ * these per game, so only one call in {@link #SAMPLE_INTERVAL} is recorded.
+ */
+@Name("com.game.chess.MoveGeneration")
+@Label("Move Generation (sampled)")
+@Category({"Chess", "AI"})
+@Description("A sampled legal move generation in the search")
+public class MoveGenerationEvent extends Event {
+
+	public static final int SAMPLE_INTERVAL = 1024;
+
+	@Label("Pieces")
+	public int pieceCount;
+
+	@Label("Moves")
+	public int moveCount;
+}
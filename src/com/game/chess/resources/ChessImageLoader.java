@@ -1,40 +1,222 @@
 package com.game.chess.resources;
 
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.AbstractMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 
 import com.game.chess.logic.ChessColor;
 import com.game.chess.logic.ChessPieceType;
 
+/**
+ * Piece and board images. Each image is decoded once, and each size a piece is
+ * shown at is scaled once and then served from a cache, so redrawing the board
+ * does no I/O and no scaling. Call {@link #evictScaledIcons(int)} when a size
+ * is no longer used, e.g. after the board has been resized.
+ *
+ * Piece icons are multi-resolution images: on a HiDPI screen Java2D asks for
+ * the variant matching the screen's scale factor, which is scaled from the
+ * full-size source, so pieces stay sharp. {@link #preloadInBackground(int...)}
+ * does the decoding and the usual scaling off the event dispatch thread at
+ * startup.
+ */
 public class ChessImageLoader {
 
-	private static final int PIECE_SIZE = 64;
+	public static final int PIECE_SIZE = 64;
+
+	// Scale factors prepared by preloading, besides those of the attached screens
+	private static final double[] COMMON_SCALES = {1.0, 1.25, 1.5, 2.0};
+
+	private static final int KINDS = ChessColor.values().length * ChessPieceType.values().length;
+
+	// Decoded originals, indexed by kind; MISSING once an image was found to be absent
+	private static final BufferedImage MISSING = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+	private static final BufferedImage[] SOURCES = new BufferedImage[KINDS];
+	private static BufferedImage boardSource;
+
+	// Scaled icons, keyed by size * KINDS + kind
+	private static final Map<Integer, ImageIcon> SCALED = new ConcurrentHashMap<>();
+
+	/**
+	 * A piece at one logical size, with a pixel variant per scale factor that is
+	 * scaled from the source the first time that factor is drawn.
+	 */
+	private static final class PieceImage extends AbstractMultiResolutionImage {
+		private final BufferedImage source;
+		private final int size;
+		private final Map<Integer, BufferedImage> variants = new ConcurrentHashMap<>();
+
+		PieceImage(BufferedImage source, int size) {
+			this.source = source;
+			this.size = size;
+		}
+
+		@Override
+		protected Image getBaseImage() {
+			return variant(size);
+		}
+
+		@Override
+		public Image getResolutionVariant(double destImageWidth, double destImageHeight) {
+			int pixels = (int) Math.ceil(Math.max(destImageWidth, destImageHeight));
+			return variant(Math.max(1, Math.min(pixels, Math.max(source.getWidth(), source.getHeight()))));
+		}
+
+		@Override
+		public List<Image> getResolutionVariants() {
+			getBaseImage();
+			return new ArrayList<>(variants.values());
+		}
+
+		private BufferedImage variant(int pixels) {
+			return variants.computeIfAbsent(pixels, p -> scale(source, p));
+		}
+	}
 
     public static ImageIcon loadPieceIcon(ChessPieceType type, ChessColor color) {
         return loadPieceIcon(type, color, PIECE_SIZE);
     }
-    
-    public static ImageIcon loadPieceIcon(ChessPieceType type, ChessColor color, int size) {
-        String colorName = color == ChessColor.WHITE ? "white" : "black";
-        String fileName = "/images/chess/" + colorName + "-" + type.name().toLowerCase() + ".png";
 
-        URL resource = ChessImageLoader.class.getResource(fileName);
-        if (resource == null) {
-            System.err.println("Missing piece image: " + fileName);
+    /**
+     * @return The shared icon of that piece at that logical size, or null if the image is missing
+     */
+    public static ImageIcon loadPieceIcon(ChessPieceType type, ChessColor color, int size) {
+        int kind = kind(type, color);
+        ImageIcon icon = SCALED.get(size * KINDS + kind);
+        if (icon != null) {
+            return icon;
+        }
+        BufferedImage source = loadSource(type, color);
+        if (source == MISSING) {
             return null;
         }
-        ImageIcon icon = new ImageIcon(resource);
-        Image scaled = icon.getImage().getScaledInstance(size, size, Image.SCALE_SMOOTH);
-        return new ImageIcon(scaled);
+        return SCALED.computeIfAbsent(size * KINDS + kind, key -> new ImageIcon(new PieceImage(source, size)));
     }
 
-    public static ImageIcon loadBoardBackground() {
-        String fileName = "/images/chess/board.png";
+    /**
+     * Drop the cached icons of one size. The decoded originals are kept.
+     */
+    public static void evictScaledIcons(int size) {
+        for (int kind = 0; kind < KINDS; kind++) {
+            SCALED.remove(size * KINDS + kind);
+        }
+    }
+
+    public static synchronized ImageIcon loadBoardBackground() {
+        if (boardSource == null) {
+            boardSource = decode("/images/chess/board.png", "board");
+        }
+        return boardSource == MISSING ? null : new ImageIcon(boardSource);
+    }
+
+    /**
+     * Decode every image and scale the pieces to the given logical sizes at the
+     * common scale factors, on a background thread, so that the first board
+     * drawn doesn't wait for any of it.
+     */
+    public static void preloadInBackground(int... sizes) {
+        Thread thread = new Thread(() -> preload(sizes), "image-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Same as {@link #preloadInBackground(int...)}, on the calling thread.
+     */
+    public static void preload(int... sizes) {
+        TreeSet<Double> scales = new TreeSet<>();
+        for (double scale : COMMON_SCALES) {
+            scales.add(scale);
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            for (GraphicsDevice screen : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+                scales.add(screen.getDefaultConfiguration().getDefaultTransform().getScaleX());
+            }
+        }
+
+        for (ChessColor color : ChessColor.values()) {
+            for (ChessPieceType type : ChessPieceType.values()) {
+                for (int size : sizes) {
+                    ImageIcon icon = loadPieceIcon(type, color, size);
+                    if (icon == null) {
+                        break;
+                    }
+                    PieceImage image = (PieceImage) icon.getImage();
+                    for (double scale : scales) {
+                        image.getResolutionVariant(size * scale, size * scale);
+                    }
+                }
+            }
+        }
+        loadBoardBackground();
+    }
+
+    private static int kind(ChessPieceType type, ChessColor color) {
+        return color.ordinal() * ChessPieceType.values().length + type.ordinal();
+    }
+
+    private static synchronized BufferedImage loadSource(ChessPieceType type, ChessColor color) {
+        int kind = kind(type, color);
+        if (SOURCES[kind] == null) {
+            String colorName = color == ChessColor.WHITE ? "white" : "black";
+            String fileName = "/images/chess/" + colorName + "-" + type.name().toLowerCase() + ".png";
+            SOURCES[kind] = decode(fileName, "piece");
+        }
+        return SOURCES[kind];
+    }
+
+    // The decoded image, or MISSING after reporting why there is none
+    private static BufferedImage decode(String fileName, String what) {
         URL resource = ChessImageLoader.class.getResource(fileName);
         if (resource == null) {
-            return null;
+            System.err.println("Missing " + what + " image: " + fileName);
+            return MISSING;
+        }
+        try {
+            BufferedImage image = ImageIO.read(resource);
+            if (image != null) {
+                return image;
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading " + what + " image " + fileName + ": " + e.getMessage());
         }
-        return new ImageIcon(resource);
+        return MISSING;
+    }
+
+    /**
+     * Smooth scaling to a square of {@code size} pixels. Large reductions are
+     * done in halving steps, which keeps bilinear filtering from skipping
+     * source pixels, and the result is an image of its own so that painting it
+     * later is a plain copy.
+     */
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(size, width / 2);
+            height = Math.max(size, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width != size || height != size);
+        return current;
     }
 }
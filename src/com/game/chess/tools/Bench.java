@@ -0,0 +1,71 @@
+package com.game.chess.tools;
+
+import java.util.Random;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Deterministic search benchmark: the advanced AI searches a fixed list of
+ * positions to a fixed depth and the total node count, time and speed are
+ * printed.
+ *
+ * Everything that could vary between runs is pinned down: tie-breaking uses a
+ * seeded Random, each run gets a fresh transposition table of the same size,
+ * and no tablebases are used. The node total is therefore a signature of the
+ * search itself. If a change leaves it alone, the change is a pure speedup (or
+ * slowdown); if it moves, the search now visits a different tree.
+ *
+ * Usage: Bench [depth] [hash MB]
+ */
+public class Bench {
+
+	public static final int DEFAULT_DEPTH = 4;
+	public static final int DEFAULT_HASH_MB = 16;
+	private static final long SEED = 20240101L;
+
+	private static final String[] POSITIONS = {
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+		"r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"4rrk1/pp1n3p/3q2pQ/2p1pb2/2PP4/2P3N1/P2B2PP/4RRK1 b - - 1 19",
+		"rq3rk1/ppp2ppp/1bnpb3/3N2B1/3NP3/7P/PPPQ1PP1/2KR3R w - - 7 14",
+		"r1bbk1nr/pp3p1p/2n5/1N4p1/2Np1B2/8/PPP2PPP/2KR1B1R w kq - 0 13",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"6k1/6p1/6Pp/ppp5/3pn2P/1P3K2/1PP2P2/8 b - - 0 1",
+		"8/8/8/8/5kp1/P7/8/1K1N4 w - - 0 1",
+	};
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		int hashMb = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_HASH_MB;
+
+		ChessAIAdvanced ai = new ChessAIAdvanced(new Random(SEED));
+		ai.setSearchDepth(depth);
+		ai.setTablebase(null);
+		ai.setTranspositionTable(TranspositionTable.allocate(hashMb));
+
+		long totalNodes = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < POSITIONS.length; i++) {
+			ChessBoard board = ChessBoard.fromFen(POSITIONS[i]);
+
+			long start = System.nanoTime();
+			ai.chooseMove(board, board.getSideToMove());
+			long nanos = System.nanoTime() - start;
+
+			totalNodes += ai.getNodeCount();
+			totalNanos += nanos;
+			System.out.printf("Position %d/%d: %,d nodes, %,d ms%n", i + 1, POSITIONS.length,
+					ai.getNodeCount(), nanos / 1_000_000);
+		}
+
+		long millis = Math.max(1, totalNanos / 1_000_000);
+		System.out.println("===========================");
+		System.out.println("Depth           : " + ai.getSearchDepth());
+		System.out.println("Total time (ms) : " + millis);
+		System.out.println("Nodes searched  : " + totalNodes);
+		System.out.println("Nodes/second    : " + totalNodes * 1000 / millis);
+	}
+}
@@ -0,0 +1,290 @@
+package com.game.chess.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.SearchListener;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Runs an EPD test suite (such as Win At Chess) against the advanced AI with a
+ * fixed time or node limit per position, and reports how many positions were
+ * solved, how quickly, and at what speed.
+ *
+ * Each line holds the four FEN position fields followed by operations; "bm"
+ * (best moves) and "am" (moves to avoid) are checked, "id" names the position:
+ *
+ *   r1b1kb1r/3q1ppp/pBp1pn2/8/Np3P2/5B2/PPP3PP/R2Q1RK1 w kq - bm Bxc6; id "example";
+ *
+ * Moves may be in algebraic notation (check marks are ignored) or coordinate
+ * notation. A position counts as solved when the move played is one of the
+ * best moves and none of the moves to avoid. Its time to solution is when the
+ * search last switched to a right move and stayed with it. Lines without a
+ * legal position or without either operation are reported as invalid and left
+ * out of the totals.
+ *
+ * Positions are spread over a thread pool; every worker has its own AI and
+ * transposition table.
+ *
+ * Usage: EpdRunner file [-time ms] [-nodes n] [-depth n] [-threads n] [-hash MB]
+ */
+public class EpdRunner {
+
+	public static final int DEFAULT_TIME_MILLIS = 1000;
+	public static final int DEFAULT_HASH_MB = 16;
+
+	/**
+	 * One suite position and the outcome of searching it.
+	 */
+	private static final class Result {
+		final String id;
+		final String expected;
+		final String played;
+		final boolean solved;
+		final long solutionMillis;
+		final long nodes;
+		final long nanos;
+		final String invalidReason; // null for a position that was searched
+
+		Result(String id, String expected, String played, boolean solved, long solutionMillis, long nodes, long nanos) {
+			this(id, expected, played, solved, solutionMillis, nodes, nanos, null);
+		}
+
+		private Result(String id, String expected, String played, boolean solved, long solutionMillis, long nodes,
+				long nanos, String invalidReason) {
+			this.id = id;
+			this.expected = expected;
+			this.played = played;
+			this.solved = solved;
+			this.solutionMillis = solutionMillis;
+			this.nodes = nodes;
+			this.nanos = nanos;
+			this.invalidReason = invalidReason;
+		}
+
+		static Result invalid(String id, String reason) {
+			return new Result(id, "-", "-", false, 0, 0, 0, reason);
+		}
+	}
+
+	/**
+	 * A worker's engine: the AI plus a board to load positions into.
+	 */
+	private final class Worker {
+		final ChessAIAdvanced ai = new ChessAIAdvanced();
+		final ChessBoard board = new ChessBoard();
+		final TranspositionTable transpositionTable = TranspositionTable.allocate(hashMb);
+
+		Worker() {
+			ai.setTranspositionTable(transpositionTable);
+			ai.setSearchDepth(depth);
+			ai.setTimeLimit(timeMillis);
+			ai.setNodeLimit(nodeLimit);
+		}
+	}
+
+	private final long timeMillis;
+	private final long nodeLimit;
+	private final int depth;
+	private final int hashMb;
+	private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+	public EpdRunner(long timeMillis, long nodeLimit, int depth, int hashMb) {
+		this.timeMillis = timeMillis;
+		this.nodeLimit = nodeLimit;
+		this.depth = depth;
+		this.hashMb = hashMb;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		if (args.length < 1) {
+			System.err.println("Usage: EpdRunner file [-time ms] [-nodes n] [-depth n] [-threads n] [-hash MB]");
+			System.exit(1);
+		}
+
+		long timeMillis = -1;
+		long nodes = 0;
+		int depth = ChessAIAdvanced.MAX_SEARCH_DEPTH;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int hashMb = DEFAULT_HASH_MB;
+		for (int i = 1; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "-time": timeMillis = Long.parseLong(value); break;
+				case "-nodes": nodes = Long.parseLong(value); break;
+				case "-depth": depth = Integer.parseInt(value); break;
+				case "-threads": threads = Integer.parseInt(value); break;
+				case "-hash": hashMb = Integer.parseInt(value); break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(1);
+			}
+		}
+		// Without any limit the search would never end
+		if (timeMillis < 0) {
+			timeMillis = nodes == 0 && depth == ChessAIAdvanced.MAX_SEARCH_DEPTH ? DEFAULT_TIME_MILLIS : 0;
+		}
+
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			if (!line.isBlank() && !line.startsWith("#")) {
+				lines.add(line.trim());
+			}
+		}
+
+		// The AI announces checkmates on standard output; keep the report readable
+		PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		new EpdRunner(timeMillis, nodes, depth, hashMb).run(lines, threads, out);
+	}
+
+	/**
+	 * Search every position and print one line per position plus a summary.
+	 */
+	public void run(List<String> lines, int threads, PrintStream out) throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		List<Future<Result>> futures = new ArrayList<>();
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			String defaultId = "#" + (i + 1);
+			futures.add(executor.submit(() -> solve(line, defaultId)));
+		}
+
+		int solved = 0;
+		int invalid = 0;
+		long solutionMillis = 0;
+		long nodes = 0;
+		long searchNanos = 0;
+		for (Future<Result> future : futures) {
+			Result result = future.get();
+			if (result.invalidReason != null) {
+				out.printf("%-16s INVALID  %s%n", result.id, result.invalidReason);
+				invalid++;
+				continue;
+			}
+			out.printf("%-16s %-8s expected %-16s played %-7s %6d ms %,12d nodes%n", result.id,
+					result.solved ? "solved" : "FAILED", result.expected, result.played,
+					result.solved ? result.solutionMillis : result.nanos / 1_000_000, result.nodes);
+			if (result.solved) {
+				solved++;
+				solutionMillis += result.solutionMillis;
+			}
+			nodes += result.nodes;
+			searchNanos += result.nanos;
+		}
+		executor.shutdown();
+		long wallMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+		out.println("===========================");
+		out.printf("Solved          : %d/%d%n", solved, futures.size() - invalid);
+		out.printf("Invalid         : %d%n", invalid);
+		out.printf("Time to solve   : %d ms average%n", solved == 0 ? 0 : solutionMillis / solved);
+		out.printf("Search time (ms): %d (wall %d)%n", searchNanos / 1_000_000, wallMillis);
+		out.printf("Nodes searched  : %d%n", nodes);
+		out.printf("Nodes/second    : %d (all threads)%n", nodes * 1000 / wallMillis);
+	}
+
+	private Result solve(String line, String defaultId) {
+		String[] fields = line.split("\\s+", 5);
+		if (fields.length < 5) {
+			return Result.invalid(defaultId, "missing position fields or operations");
+		}
+		String operations = fields[4];
+		String id = operation(operations, "id");
+		String bestMoves = operation(operations, "bm");
+		String avoidMoves = operation(operations, "am");
+		id = id != null ? id.replace("\"", "") : defaultId;
+		// Without either there is nothing to check the move against
+		if (bestMoves == null && avoidMoves == null) {
+			return Result.invalid(id, "no bm or am operation");
+		}
+		String expected = bestMoves != null ? "bm " + bestMoves : "am " + avoidMoves;
+
+		Worker worker = workers.get();
+		try {
+			worker.board.setFen(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3]);
+		} catch (IllegalArgumentException e) {
+			return Result.invalid(id, "bad position: " + e.getMessage());
+		}
+		ChessBoard board = worker.board;
+
+		// Every position starts from an empty table, whichever worker gets it
+		worker.transpositionTable.clear();
+
+		// Remember when the search last switched from a wrong move to a right one
+		long[] solvedAt = {-1};
+		SearchListener listener = info -> {
+			List<ChessMove> pv = info.getPrincipalVariation();
+			if (pv.isEmpty() || !isRight(pv.get(0), board, bestMoves, avoidMoves)) {
+				solvedAt[0] = -1;
+			} else if (solvedAt[0] < 0) {
+				solvedAt[0] = info.getTimeMillis();
+			}
+		};
+
+		worker.ai.addSearchListener(listener);
+		long start = System.nanoTime();
+		ChessMove move = worker.ai.chooseMove(board, board.getSideToMove());
+		long nanos = System.nanoTime() - start;
+		worker.ai.removeSearchListener(listener);
+
+		String played = move != null ? move.toSan(board) : "-";
+		boolean solved = move != null && isRight(move, board, bestMoves, avoidMoves);
+		long solutionMillis = solvedAt[0] >= 0 ? solvedAt[0] : nanos / 1_000_000;
+		return new Result(id, expected, played, solved, solutionMillis, worker.ai.getNodeCount(), nanos);
+	}
+
+	private static boolean isRight(ChessMove move, ChessBoard board, String bestMoves, String avoidMoves) {
+		String san = move.toSan(board);
+		String coordinates = move.toString();
+		if (bestMoves != null && !containsMove(bestMoves, san, coordinates)) {
+			return false;
+		}
+		return avoidMoves == null || !containsMove(avoidMoves, san, coordinates);
+	}
+
+	private static boolean containsMove(String moves, String san, String coordinates) {
+		for (String move : moves.split("\\s+")) {
+			String normalized = normalize(move);
+			if (normalized.equals(san) || normalized.equals(coordinates)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Drop check marks, annotations and promotion pieces; accept "0-0" for castling
+	private static String normalize(String move) {
+		String san = move.replaceAll("[+#!?]", "").replace('0', 'O');
+		int promotion = san.indexOf('=');
+		return promotion >= 0 ? san.substring(0, promotion) : san;
+	}
+
+	/**
+	 * Value of an EPD operation, e.g. "Qg6 Rxg7" for "bm Qg6 Rxg7;", or null.
+	 */
+	private static String operation(String operations, String opcode) {
+		for (String operation : operations.split(";")) {
+			String trimmed = operation.trim();
+			if (trimmed.startsWith(opcode + " ")) {
+				return trimmed.substring(opcode.length() + 1).trim();
+			}
+		}
+		return null;
+	}
+}
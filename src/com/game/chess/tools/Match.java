@@ -0,0 +1,402 @@
+package com.game.chess.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import com.game.chess.logic.ChessAI;
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessAIIntermediate;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.ChessColor;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Headless self-play match between two AI configurations, to tell whether a
+ * change makes an AI stronger rather than just different.
+ *
+ * Every opening of the suite is played twice with colors swapped, and games
+ * run concurrently on all cores. After each game the Elo difference (with a
+ * 95% error margin) is updated, together with the log-likelihood ratio of a
+ * sequential probability ratio test (SPRT) between "player 1 is elo0 stronger"
+ * and "player 1 is elo1 stronger". The match stops as soon as the test accepts
+ * either hypothesis, or when all games are played.
+ *
+ * A game is drawn by stalemate, threefold repetition, the fifty-move rule,
+ * bare kings (or a single minor piece), or on reaching the ply limit.
+ *
+ * Usage: Match player1 player2 [-games n] [-threads n] [-openings file]
+ *        [-elo0 e] [-elo1 e] [-alpha a] [-beta b] [-maxplies n] [-seed n]
+ *
+ * A player is beginner, intermediate or advanced, the last optionally with
+ * settings: advanced:depth=4,hash=8,futility=200,razor=400,delta=150,pruning=off
+ *
+ * The openings file holds one FEN (or EPD) per line; without it a built-in
+ * suite of common openings is used.
+ */
+public class Match {
+
+	public static final int DEFAULT_GAMES = 1000;
+	public static final int DEFAULT_MAX_PLIES = 300;
+	public static final int DEFAULT_HASH_MB = 4;
+
+	/**
+	 * Built-in opening suite: short move sequences from the start position,
+	 * covering open, semi-open and closed games.
+	 */
+	private static final String[] OPENINGS = {
+		"e2e4 e7e5 g1f3 b8c6 f1b5",        // Ruy Lopez
+		"e2e4 e7e5 g1f3 b8c6 f1c4",        // Italian
+		"e2e4 e7e5 g1f3 b8c6 d2d4",        // Scotch
+		"e2e4 e7e5 g1f3 g8f6",             // Petrov
+		"e2e4 c7c5 g1f3 d7d6",             // Sicilian
+		"e2e4 c7c5 b1c3 b8c6",             // Closed Sicilian
+		"e2e4 e7e6 d2d4 d7d5",             // French
+		"e2e4 c7c6 d2d4 d7d5",             // Caro-Kann
+		"e2e4 d7d6 d2d4 g8f6 b1c3",        // Pirc
+		"e2e4 d7d5 e4d5 d8d5",             // Scandinavian
+		"d2d4 d7d5 c2c4 e7e6",             // Queen's Gambit Declined
+		"d2d4 d7d5 c2c4 c7c6",             // Slav
+		"d2d4 g8f6 c2c4 g7g6 b1c3 f8g7",   // King's Indian
+		"d2d4 g8f6 c2c4 e7e6 b1c3 f8b4",   // Nimzo-Indian
+		"d2d4 f7f5 g2g3 g8f6",             // Dutch
+		"c2c4 e7e5 b1c3 g8f6",             // English
+		"g1f3 d7d5 g2g3 g8f6",             // Reti
+		"d2d4 d7d5 c1f4 g8f6 e2e3",        // London
+	};
+
+	// Game results from player 1's point of view
+	private static final int WIN = 0;
+	private static final int DRAW = 1;
+	private static final int LOSS = 2;
+
+	private final PlayerConfig player1;
+	private final PlayerConfig player2;
+	private final List<String> openings;
+	private final int games;
+	private final int threads;
+	private final int maxPlies;
+	private final double elo0;
+	private final double elo1;
+	private final double lowerBound;
+	private final double upperBound;
+	private final long seed;
+	private final PrintStream out;
+
+	private final int[] results = new int[3];
+	private int gamesFinished;
+	private volatile boolean finished;
+
+	public Match(PlayerConfig player1, PlayerConfig player2, List<String> openings, int games, int threads,
+			int maxPlies, double elo0, double elo1, double alpha, double beta, long seed, PrintStream out) {
+		this.player1 = player1;
+		this.player2 = player2;
+		this.openings = openings;
+		this.games = games;
+		this.threads = threads;
+		this.maxPlies = maxPlies;
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.lowerBound = Math.log(beta / (1 - alpha));
+		this.upperBound = Math.log((1 - beta) / alpha);
+		this.seed = seed;
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: Match player1 player2 [-games n] [-threads n] [-openings file]"
+					+ " [-elo0 e] [-elo1 e] [-alpha a] [-beta b] [-maxplies n] [-seed n]");
+			System.exit(1);
+		}
+
+		PlayerConfig player1 = PlayerConfig.parse(args[0]);
+		PlayerConfig player2 = PlayerConfig.parse(args[1]);
+		int games = DEFAULT_GAMES;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxPlies = DEFAULT_MAX_PLIES;
+		double elo0 = 0;
+		double elo1 = 5;
+		double alpha = 0.05;
+		double beta = 0.05;
+		long seed = 1;
+		List<String> openings = new ArrayList<>();
+		for (String opening : OPENINGS) {
+			openings.add(openingFen(opening));
+		}
+
+		for (int i = 2; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "-games": games = Integer.parseInt(value); break;
+				case "-threads": threads = Integer.parseInt(value); break;
+				case "-maxplies": maxPlies = Integer.parseInt(value); break;
+				case "-elo0": elo0 = Double.parseDouble(value); break;
+				case "-elo1": elo1 = Double.parseDouble(value); break;
+				case "-alpha": alpha = Double.parseDouble(value); break;
+				case "-beta": beta = Double.parseDouble(value); break;
+				case "-seed": seed = Long.parseLong(value); break;
+				case "-openings": openings = readOpenings(value); break;
+				default:
+					System.err.println("Unknown option: " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		// The AIs announce checkmates on standard output; keep the report readable
+		PrintStream report = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		new Match(player1, player2, openings, games, threads, maxPlies, elo0, elo1, alpha, beta, seed, report).run();
+	}
+
+	/**
+	 * Play the match, printing a line per finished game and a summary at the end.
+	 */
+	public void run() throws InterruptedException {
+		out.printf("%s vs %s: up to %d games, %d openings, %d threads, SPRT elo0=%.1f elo1=%.1f%n",
+				player1, player2, games, openings.size(), threads, elo0, elo1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < games; i++) {
+			int game = i;
+			executor.execute(() -> {
+				if (!finished) {
+					gameFinished(game, playGame(game));
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+		synchronized (this) {
+			out.println("===========================");
+			out.printf("Games           : %d (+%d =%d -%d)%n", gamesFinished, results[WIN], results[DRAW], results[LOSS]);
+			out.printf("Elo difference  : %s%n", formatElo());
+			double llr = logLikelihoodRatio();
+			out.printf("SPRT            : LLR %.2f [%.2f, %.2f] %s%n", llr, lowerBound, upperBound,
+					llr >= upperBound ? "H1 accepted" : llr <= lowerBound ? "H0 accepted" : "inconclusive");
+		}
+	}
+
+	private synchronized void gameFinished(int game, int result) {
+		if (finished) {
+			return;
+		}
+		results[result]++;
+		gamesFinished++;
+		double llr = logLikelihoodRatio();
+		out.printf("Game %d: %s  (+%d =%d -%d)  Elo %s  LLR %.2f%n", game + 1,
+				result == WIN ? "1-0" : result == DRAW ? "1/2" : "0-1",
+				results[WIN], results[DRAW], results[LOSS], formatElo(), llr);
+		if (llr >= upperBound || llr <= lowerBound) {
+			finished = true;
+		}
+	}
+
+	/**
+	 * Play one game. Each opening is used for two consecutive games, player 1
+	 * taking white in the first and black in the second.
+	 *
+	 * @return WIN, DRAW or LOSS for player 1
+	 */
+	private int playGame(int game) {
+		ChessBoard board = ChessBoard.fromFen(openings.get((game / 2) % openings.size()));
+		ChessColor player1Color = game % 2 == 0 ? ChessColor.WHITE : ChessColor.BLACK;
+		BiFunction<ChessBoard, ChessColor, ChessMove> first = player1.newPlayer(new Random(seed * 31 + game));
+		BiFunction<ChessBoard, ChessColor, ChessMove> second = player2.newPlayer(new Random(seed * 37 + game));
+
+		Map<Long, Integer> repetitions = new HashMap<>();
+		for (int ply = 0; ply < maxPlies; ply++) {
+			ChessColor toMove = board.getSideToMove();
+			if (!board.hasAnyLegalMove(toMove)) {
+				if (!board.isInCheck(toMove)) {
+					return DRAW;
+				}
+				return toMove == player1Color ? LOSS : WIN;
+			}
+			if (board.getHalfmoveClock() >= 100 || board.isInsufficientMaterial()
+					|| repetitions.merge(TranspositionTable.hash(board, toMove), 1, Integer::sum) >= 3) {
+				return DRAW;
+			}
+
+			ChessMove move = (toMove == player1Color ? first : second).apply(board, toMove);
+			if (move == null || !board.isLegalMove(move, toMove)) {
+				System.err.println("Illegal move " + move + " by " + (toMove == player1Color ? player1 : player2)
+						+ " in " + board.toFen());
+				return toMove == player1Color ? LOSS : WIN;
+			}
+			board.applyMove(move);
+		}
+		return DRAW;
+	}
+
+	// Mean score of player 1 per game, and the variance of a single game's score
+	private double meanScore() {
+		return (results[WIN] + 0.5 * results[DRAW]) / gamesFinished;
+	}
+
+	private double scoreVariance(double mean) {
+		double win = (double) results[WIN] / gamesFinished;
+		double draw = (double) results[DRAW] / gamesFinished;
+		double loss = (double) results[LOSS] / gamesFinished;
+		return win * (1 - mean) * (1 - mean) + draw * (0.5 - mean) * (0.5 - mean) + loss * mean * mean;
+	}
+
+	private static double elo(double score) {
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	private static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	private String formatElo() {
+		if (gamesFinished == 0) {
+			return "-";
+		}
+		double mean = meanScore();
+		if (mean <= 0 || mean >= 1) {
+			return mean <= 0 ? "-inf" : "+inf";
+		}
+		double margin = 1.96 * Math.sqrt(scoreVariance(mean) / gamesFinished);
+		double low = elo(Math.max(1e-6, mean - margin));
+		double high = elo(Math.min(1 - 1e-6, mean + margin));
+		return String.format("%+.1f +/- %.1f", elo(mean), (high - low) / 2);
+	}
+
+	/**
+	 * Log-likelihood ratio of elo1 against elo0, with the game scores taken as
+	 * normally distributed around their observed mean and variance.
+	 */
+	private double logLikelihoodRatio() {
+		if (gamesFinished == 0) {
+			return 0;
+		}
+		double mean = meanScore();
+		double variance = scoreVariance(mean);
+		if (variance == 0) {
+			return 0;
+		}
+		double s0 = expectedScore(elo0);
+		double s1 = expectedScore(elo1);
+		return gamesFinished * (s1 - s0) * (2 * mean - s0 - s1) / (2 * variance);
+	}
+
+	private static String openingFen(String moves) {
+		ChessBoard board = new ChessBoard();
+		for (String text : moves.split(" ")) {
+			board.applyMove(ChessMove.parse(text, board));
+		}
+		return board.toFen();
+	}
+
+	private static List<String> readOpenings(String file) throws IOException {
+		List<String> openings = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				ChessBoard.fromFen(line); // Fail early on a bad line
+				openings.add(line);
+			}
+		}
+		if (openings.isEmpty()) {
+			throw new IOException("No openings in " + file);
+		}
+		return openings;
+	}
+
+	/**
+	 * One side of the match: an AI level plus its settings. Every game gets
+	 * fresh AI instances, so games can run in parallel.
+	 */
+	public static final class PlayerConfig {
+
+		private final String description;
+		private final String level;
+		private final Map<String, String> settings;
+
+		private PlayerConfig(String description, String level, Map<String, String> settings) {
+			this.description = description;
+			this.level = level;
+			this.settings = settings;
+		}
+
+		/**
+		 * Read a player such as "intermediate" or "advanced:depth=4,pruning=off".
+		 */
+		public static PlayerConfig parse(String text) {
+			int colon = text.indexOf(':');
+			String level = colon < 0 ? text : text.substring(0, colon);
+			Map<String, String> settings = new HashMap<>();
+			if (colon >= 0) {
+				for (String setting : text.substring(colon + 1).split(",")) {
+					int equals = setting.indexOf('=');
+					if (equals < 0) {
+						throw new IllegalArgumentException("Expected name=value: " + setting);
+					}
+					settings.put(setting.substring(0, equals), setting.substring(equals + 1));
+				}
+			}
+			if (!level.equals("beginner") && !level.equals("intermediate") && !level.equals("advanced")) {
+				throw new IllegalArgumentException("Unknown AI level: " + level);
+			}
+			if (!level.equals("advanced") && !settings.isEmpty()) {
+				throw new IllegalArgumentException("Only the advanced AI has settings: " + text);
+			}
+			for (String name : settings.keySet()) {
+				if (!name.matches("hash|depth|futility|razor|delta|pruning")) {
+					throw new IllegalArgumentException("Unknown setting: " + name);
+				}
+			}
+			return new PlayerConfig(text, level, settings);
+		}
+
+		BiFunction<ChessBoard, ChessColor, ChessMove> newPlayer(Random random) {
+			switch (level) {
+				case "beginner":
+					return new ChessAI(random)::chooseMove;
+				case "intermediate":
+					return new ChessAIIntermediate(random)::chooseMove;
+				default:
+					return newAdvanced(random)::chooseMove;
+			}
+		}
+
+		private ChessAIAdvanced newAdvanced(Random random) {
+			ChessAIAdvanced ai = new ChessAIAdvanced(random);
+			ai.setTranspositionTable(TranspositionTable.allocate(intSetting("hash", DEFAULT_HASH_MB)));
+			if (settings.containsKey("depth")) {
+				ai.setSearchDepth(intSetting("depth", 0));
+			}
+			ai.setPruningMargins(intSetting("futility", ChessAIAdvanced.DEFAULT_FUTILITY_MARGIN),
+					intSetting("razor", ChessAIAdvanced.DEFAULT_RAZOR_MARGIN),
+					intSetting("delta", ChessAIAdvanced.DEFAULT_DELTA_MARGIN));
+			ai.setPruningEnabled(!"off".equals(settings.get("pruning")));
+			return ai;
+		}
+
+		private int intSetting(String name, int defaultValue) {
+			String value = settings.get(name);
+			return value != null ? Integer.parseInt(value) : defaultValue;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+}
@@ -0,0 +1,559 @@
+package com.game.chess.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.game.chess.logic.ChessColor;
+import com.game.chess.logic.ChessPieceType;
+import com.game.chess.logic.Tablebase;
+
+/**
+ * Offline generator for the {@link Tablebase} files: every pawnless material
+ * combination with three or four pieces, built by retrograde analysis.
+ * 
+ * For each table, one forward pass over all positions finds checkmates and
+ * stalemates, counts each position's quiet moves, and resolves captures by
+ * probing the smaller tables that were already written. From then on the
+ * work goes backwards: positions decided at distance n-1 un-move to their
+ * predecessors, which become wins at distance n (if the child was lost) or
+ * get one fewer escape (if the child was won) until they have none left and
+ * are lost. Whatever is never decided is a draw.
+ * 
+ * Both passes are split across a thread pool, one chunk of positions per task.
+ * 
+ * Usage: TablebaseGenerator [output directory] [threads]
+ */
+public class TablebaseGenerator {
+
+	// Working values: plies to mate (odd = side to move wins, even = loses) or one of these
+	private static final int UNKNOWN = -1;
+	private static final int DRAW = -2;
+	private static final int ILLEGAL = -3;
+	
+	private static final short NO_CONVERSION = Short.MAX_VALUE;
+	
+	// Added to the escape counter when a capture holds the draw, so the position can never be lost
+	private static final int CANNOT_LOSE = 1 << 20;
+	
+	private static final int CHUNKS_PER_THREAD = 16;
+	
+	private static final int[][] KING_STEPS = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+	private static final int[][] KNIGHT_STEPS = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+	private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+	
+	private final Path outputDirectory;
+	private final int threads;
+	private final ExecutorService executor;
+
+	public TablebaseGenerator(Path outputDirectory, int threads) {
+		this.outputDirectory = outputDirectory;
+		this.threads = threads;
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		Path outputDirectory = Paths.get(args.length > 0 ? args[0] : Tablebase.DEFAULT_DIRECTORY);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		
+		TablebaseGenerator generator = new TablebaseGenerator(outputDirectory, threads);
+		try {
+			generator.generateAll();
+		} finally {
+			generator.shutdown();
+		}
+	}
+	
+	/**
+	 * Generate all three-piece tables, then all four-piece tables (whose
+	 * captures lead into the three-piece ones).
+	 */
+	public void generateAll() throws IOException, InterruptedException, ExecutionException {
+		Files.createDirectories(outputDirectory);
+		System.out.println("Generating tablebases in " + outputDirectory.toAbsolutePath() + " using " + threads + " threads");
+		
+		ChessPieceType[] pieces = {ChessPieceType.QUEEN, ChessPieceType.ROOK, ChessPieceType.BISHOP, ChessPieceType.KNIGHT};
+		
+		for (ChessPieceType piece : pieces) {
+			generate(new ChessPieceType[] {piece}, new ChessPieceType[0], null);
+		}
+		
+		Tablebase smallerTables = Tablebase.open(outputDirectory);
+		for (int i = 0; i < pieces.length; i++) {
+			for (int j = i; j < pieces.length; j++) {
+				generate(new ChessPieceType[] {pieces[i], pieces[j]}, new ChessPieceType[0], smallerTables);
+				generate(new ChessPieceType[] {pieces[i]}, new ChessPieceType[] {pieces[j]}, smallerTables);
+			}
+		}
+	}
+	
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	/**
+	 * Build and write one table. Both piece lists must be ordered by piece type,
+	 * with the stronger side as white.
+	 */
+	public void generate(ChessPieceType[] white, ChessPieceType[] black, Tablebase smallerTables)
+			throws IOException, InterruptedException, ExecutionException {
+		long start = System.currentTimeMillis();
+		TableBuilder table = new TableBuilder(white, black, smallerTables);
+		table.build();
+		Path file = outputDirectory.resolve(Tablebase.fileName(table.materialId));
+		Files.write(file, table.encode());
+		System.out.printf("%-10s %,11d positions  longest mate %3d moves  %,7d ms%n",
+				Tablebase.fileName(table.materialId), table.size, (table.maxPlies.get() + 1) / 2,
+				System.currentTimeMillis() - start);
+	}
+	
+	private interface PositionTask {
+		void run(Worker worker, int index);
+	}
+	
+	/**
+	 * Run a task for every position index, split into chunks over the thread pool.
+	 */
+	private void forEachPosition(TableBuilder table, PositionTask task) throws InterruptedException, ExecutionException {
+		int chunks = threads * CHUNKS_PER_THREAD;
+		int chunkSize = (table.size + chunks - 1) / chunks;
+		List<Callable<Void>> jobs = new ArrayList<>();
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int from = chunk * chunkSize;
+			int to = Math.min(table.size, from + chunkSize);
+			jobs.add(() -> {
+				Worker worker = new Worker(table);
+				for (int index = from; index < to; index++) {
+					task.run(worker, index);
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : executor.invokeAll(jobs)) {
+			result.get();
+		}
+	}
+	
+	/**
+	 * One material combination being generated.
+	 */
+	private final class TableBuilder {
+		final int[] codes;
+		final int pieceCount;
+		final int materialId;
+		final int size;
+		final Tablebase smallerTables;
+		
+		final AtomicIntegerArray values;
+		final AtomicIntegerArray escapes;
+		final short[] conversionWin;
+		final short[] conversionLoss;
+		final AtomicInteger maxPlies = new AtomicInteger();
+		final AtomicInteger maxConversionWin = new AtomicInteger();
+		
+		TableBuilder(ChessPieceType[] white, ChessPieceType[] black, Tablebase smallerTables) {
+			this.pieceCount = 2 + white.length + black.length;
+			this.codes = new int[pieceCount];
+			codes[0] = Tablebase.pieceCode(ChessPieceType.KING, ChessColor.WHITE);
+			codes[1] = Tablebase.pieceCode(ChessPieceType.KING, ChessColor.BLACK);
+			for (int i = 0; i < white.length; i++) {
+				codes[2 + i] = Tablebase.pieceCode(white[i], ChessColor.WHITE);
+			}
+			for (int i = 0; i < black.length; i++) {
+				codes[2 + white.length + i] = Tablebase.pieceCode(black[i], ChessColor.BLACK);
+			}
+			this.materialId = Tablebase.materialId(Tablebase.materialKey(white), Tablebase.materialKey(black));
+			this.size = Tablebase.tableSize(pieceCount);
+			this.smallerTables = smallerTables;
+			this.values = new AtomicIntegerArray(size);
+			this.escapes = new AtomicIntegerArray(size);
+			this.conversionWin = new short[size];
+			this.conversionLoss = new short[size];
+		}
+		
+		void build() throws InterruptedException, ExecutionException {
+			forEachPosition(this, Worker::initialize);
+			
+			for (int plies = 1; plies <= Math.max(maxPlies.get(), maxConversionWin.get()) + 1; plies++) {
+				int level = plies;
+				forEachPosition(this, (worker, index) -> {
+					if (conversionWin[index] == level && values.get(index) == UNKNOWN) {
+						resolve(index, level);
+					}
+				});
+				forEachPosition(this, (worker, index) -> {
+					if (values.get(index) == level - 1) {
+						worker.retract(index, level);
+					}
+				});
+			}
+		}
+		
+		void resolve(int index, int plies) {
+			if (values.compareAndSet(index, UNKNOWN, plies)) {
+				maxPlies.accumulateAndGet(plies, Math::max);
+			}
+		}
+		
+		byte[] encode() {
+			ByteBuffer out = ByteBuffer.allocate(Tablebase.HEADER_SIZE + size);
+			out.putInt(Tablebase.MAGIC);
+			out.putInt(materialId);
+			for (int index = 0; index < size; index++) {
+				int value = values.get(index);
+				int result;
+				if (value == ILLEGAL) {
+					result = Tablebase.ILLEGAL;
+				} else if (value < 0) {
+					result = Tablebase.DRAW;
+				} else if (value % 2 == 1) {
+					// Wins must stay below the losses, losses below ILLEGAL
+					result = (value + 1) / 2;
+					if (result >= Tablebase.LOSS) {
+						throw new IllegalStateException("Mate distance too long to encode: " + value + " plies");
+					}
+				} else {
+					result = Tablebase.LOSS + value / 2;
+					if (result >= Tablebase.ILLEGAL) {
+						throw new IllegalStateException("Mate distance too long to encode: " + value + " plies");
+					}
+				}
+				out.put((byte) result);
+			}
+			return out.array();
+		}
+	}
+	
+	/**
+	 * Per-thread scratch state: one decoded position and its move buffers.
+	 */
+	private static final class Worker {
+		private final TableBuilder table;
+		private final int[] codes;
+		private final int pieceCount;
+		
+		private final int[] squares;
+		private final boolean[] captured;
+		private final int[] board = new int[64];
+		private boolean whiteToMove;
+		
+		private final int[] targets = new int[32];
+		private final int[] childCodes;
+		private final int[] childSquares;
+		
+		Worker(TableBuilder table) {
+			this.table = table;
+			this.codes = table.codes;
+			this.pieceCount = table.pieceCount;
+			this.squares = new int[pieceCount];
+			this.captured = new boolean[pieceCount];
+			this.childCodes = new int[pieceCount];
+			this.childSquares = new int[pieceCount];
+		}
+		
+		/**
+		 * Forward pass: mark illegal positions, mates and stalemates, count quiet
+		 * moves and resolve captures into the smaller tables.
+		 */
+		void initialize(int index) {
+			if (!load(index) || isAttacked(kingSquare(!whiteToMove), whiteToMove)) {
+				table.values.set(index, ILLEGAL);
+				return;
+			}
+			
+			int legalMoves = 0;
+			int quietMoves = 0;
+			int conversionWin = NO_CONVERSION;
+			int conversionLoss = -1;
+			boolean conversionDraw = false;
+			
+			for (int slot = 0; slot < pieceCount; slot++) {
+				if (isWhite(slot) != whiteToMove) {
+					continue;
+				}
+				int targetCount = generateTargets(slot, false);
+				for (int t = 0; t < targetCount; t++) {
+					int to = targets[t];
+					int from = squares[slot];
+					int victim = board[to];
+					
+					move(slot, from, to, victim);
+					if (!isAttacked(kingSquare(whiteToMove), !whiteToMove)) {
+						legalMoves++;
+						if (victim < 0) {
+							quietMoves++;
+						} else {
+							int result = probeChild();
+							if (Tablebase.isLoss(result)) {
+								conversionWin = Math.min(conversionWin, Tablebase.pliesToMate(result) + 1);
+							} else if (Tablebase.isWin(result)) {
+								conversionLoss = Math.max(conversionLoss, Tablebase.pliesToMate(result));
+							} else {
+								conversionDraw = true;
+							}
+						}
+					}
+					unmove(slot, from, to, victim);
+				}
+			}
+			
+			if (legalMoves == 0) {
+				boolean inCheck = isAttacked(kingSquare(whiteToMove), !whiteToMove);
+				table.values.set(index, inCheck ? 0 : DRAW);
+				return;
+			}
+			
+			table.escapes.set(index, quietMoves + (conversionDraw ? CANNOT_LOSE : 0));
+			table.conversionWin[index] = (short) conversionWin;
+			table.conversionLoss[index] = (short) conversionLoss;
+			if (conversionWin != NO_CONVERSION) {
+				table.maxConversionWin.accumulateAndGet(conversionWin, Math::max);
+			}
+			
+			table.values.set(index, UNKNOWN);
+			if (quietMoves == 0 && !conversionDraw && conversionWin == NO_CONVERSION) {
+				// Every move is a capture into a lost ending
+				table.resolve(index, conversionLoss + 1);
+			}
+		}
+		
+		/**
+		 * Backward step from a position decided at {@code level - 1}: visit every
+		 * predecessor that reaches it with a quiet move.
+		 */
+		void retract(int index, int level) {
+			load(index);
+			boolean childLost = (level - 1) % 2 == 0;
+			boolean moverIsWhite = !whiteToMove;
+			
+			for (int slot = 0; slot < pieceCount; slot++) {
+				if (isWhite(slot) != moverIsWhite) {
+					continue;
+				}
+				int targetCount = generateTargets(slot, true);
+				for (int t = 0; t < targetCount; t++) {
+					int to = targets[t];
+					int from = squares[slot];
+					move(slot, from, to, -1);
+					
+					// The mover is to move in the predecessor, so the other king can't be in check
+					if (!isAttacked(kingSquare(!moverIsWhite), moverIsWhite)) {
+						int predecessor = index(moverIsWhite);
+						if (table.values.get(predecessor) == UNKNOWN) {
+							if (childLost) {
+								table.resolve(predecessor, level);
+							} else if (table.escapes.decrementAndGet(predecessor) == 0
+									&& table.conversionWin[predecessor] == NO_CONVERSION) {
+								table.resolve(predecessor, Math.max(level, table.conversionLoss[predecessor] + 1));
+							}
+						}
+					}
+					unmove(slot, from, to, -1);
+				}
+			}
+		}
+		
+		/**
+		 * Decode a position index. Returns false if two pieces share a square.
+		 */
+		private boolean load(int index) {
+			int rest = index;
+			for (int slot = pieceCount - 1; slot >= 1; slot--) {
+				squares[slot] = rest & 63;
+				rest >>>= 6;
+			}
+			int quadrant = rest & 15;
+			whiteToMove = (rest >>> 4) == 0;
+			squares[0] = (quadrant / 4) * 8 + quadrant % 4;
+			
+			java.util.Arrays.fill(board, -1);
+			for (int slot = 0; slot < pieceCount; slot++) {
+				captured[slot] = false;
+				if (board[squares[slot]] >= 0) {
+					return false;
+				}
+				board[squares[slot]] = slot;
+			}
+			return true;
+		}
+		
+		private int index(boolean whiteToMove) {
+			int flip = Tablebase.symmetryFor(squares[0]);
+			int index = Tablebase.indexPrefix(whiteToMove, squares[0] ^ flip, squares[1] ^ flip);
+			for (int slot = 2; slot < pieceCount; slot++) {
+				index = index * 64 + (squares[slot] ^ flip);
+			}
+			return index;
+		}
+		
+		private void move(int slot, int from, int to, int victim) {
+			if (victim >= 0) {
+				captured[victim] = true;
+			}
+			board[from] = -1;
+			board[to] = slot;
+			squares[slot] = to;
+		}
+		
+		private void unmove(int slot, int from, int to, int victim) {
+			if (victim >= 0) {
+				captured[victim] = false;
+			}
+			board[to] = victim;
+			board[from] = slot;
+			squares[slot] = from;
+		}
+		
+		private int probeChild() {
+			int count = 0;
+			for (int slot = 0; slot < pieceCount; slot++) {
+				if (!captured[slot]) {
+					childCodes[count] = codes[slot];
+					childSquares[count] = squares[slot];
+					count++;
+				}
+			}
+			int result = table.smallerTables == null ? Tablebase.DRAW
+					: table.smallerTables.probe(childCodes, childSquares, count, !whiteToMove);
+			if (count > 2 && (table.smallerTables == null || result == Tablebase.NOT_FOUND)) {
+				throw new IllegalStateException("Missing smaller table for a capture from " + Tablebase.fileName(table.materialId));
+			}
+			return result;
+		}
+		
+		private boolean isWhite(int slot) {
+			return Tablebase.isWhite(codes[slot]);
+		}
+		
+		private int kingSquare(boolean white) {
+			return squares[white ? 0 : 1];
+		}
+		
+		private boolean isAttacked(int square, boolean byWhite) {
+			for (int slot = 0; slot < pieceCount; slot++) {
+				if (!captured[slot] && isWhite(slot) == byWhite && attacks(slot, square)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private boolean attacks(int slot, int square) {
+			int from = squares[slot];
+			int dRow = (square >> 3) - (from >> 3);
+			int dCol = (square & 7) - (from & 7);
+			int absRow = Math.abs(dRow);
+			int absCol = Math.abs(dCol);
+			switch (Tablebase.typeOf(codes[slot])) {
+				case KING:
+					return Math.max(absRow, absCol) == 1;
+				case KNIGHT:
+					return (absRow == 1 && absCol == 2) || (absRow == 2 && absCol == 1);
+				case ROOK:
+					return (dRow == 0 || dCol == 0) && (absRow | absCol) != 0 && isPathClear(from, square);
+				case BISHOP:
+					return absRow == absCol && absRow != 0 && isPathClear(from, square);
+				case QUEEN:
+					return (dRow == 0 || dCol == 0 || absRow == absCol) && (absRow | absCol) != 0 && isPathClear(from, square);
+				default:
+					return false;
+			}
+		}
+		
+		private boolean isPathClear(int from, int to) {
+			int step = Integer.signum((to >> 3) - (from >> 3)) * 8 + Integer.signum((to & 7) - (from & 7));
+			for (int square = from + step; square != to; square += step) {
+				if (board[square] >= 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Destination squares of a piece. For un-moves only empty squares count,
+		 * since a retracted move can't uncapture anything.
+		 */
+		private int generateTargets(int slot, boolean emptyOnly) {
+			int from = squares[slot];
+			int row = from >> 3;
+			int col = from & 7;
+			boolean white = isWhite(slot);
+			int count = 0;
+			switch (Tablebase.typeOf(codes[slot])) {
+				case KING:
+					count = addSteps(KING_STEPS, row, col, white, emptyOnly, count);
+					break;
+				case KNIGHT:
+					count = addSteps(KNIGHT_STEPS, row, col, white, emptyOnly, count);
+					break;
+				case ROOK:
+					count = addRays(ROOK_DIRECTIONS, row, col, white, emptyOnly, count);
+					break;
+				case BISHOP:
+					count = addRays(BISHOP_DIRECTIONS, row, col, white, emptyOnly, count);
+					break;
+				case QUEEN:
+					count = addRays(ROOK_DIRECTIONS, row, col, white, emptyOnly, count);
+					count = addRays(BISHOP_DIRECTIONS, row, col, white, emptyOnly, count);
+					break;
+				default:
+					break;
+			}
+			return count;
+		}
+		
+		private int addSteps(int[][] steps, int row, int col, boolean white, boolean emptyOnly, int count) {
+			for (int[] step : steps) {
+				int r = row + step[0];
+				int c = col + step[1];
+				if (r >= 0 && r < 8 && c >= 0 && c < 8 && canLand(r * 8 + c, white, emptyOnly)) {
+					targets[count++] = r * 8 + c;
+				}
+			}
+			return count;
+		}
+		
+		private int addRays(int[][] directions, int row, int col, boolean white, boolean emptyOnly, int count) {
+			for (int[] direction : directions) {
+				int r = row + direction[0];
+				int c = col + direction[1];
+				while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+					int square = r * 8 + c;
+					if (board[square] >= 0) {
+						if (canLand(square, white, emptyOnly)) {
+							targets[count++] = square;
+						}
+						break;
+					}
+					targets[count++] = square;
+					r += direction[0];
+					c += direction[1];
+				}
+			}
+			return count;
+		}
+		
+		private boolean canLand(int square, boolean white, boolean emptyOnly) {
+			int occupant = board[square];
+			if (occupant < 0) {
+				return true;
+			}
+			// Kings are never captured: positions where that's possible are illegal
+			return !emptyOnly && isWhite(occupant) != white
+					&& Tablebase.typeOf(codes[occupant]) != ChessPieceType.KING;
+		}
+	}
+}
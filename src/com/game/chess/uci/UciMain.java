@@ -0,0 +1,316 @@
+package com.game.chess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.game.chess.logic.ChessAIAdvanced;
+import com.game.chess.logic.ChessBoard;
+import com.game.chess.logic.ChessColor;
+import com.game.chess.logic.ChessMove;
+import com.game.chess.logic.SearchInfo;
+import com.game.chess.logic.TranspositionTable;
+
+/**
+ * Universal Chess Interface (UCI) front-end for the advanced AI, so the engine
+ * can be run by chess GUIs and tournament managers. Commands are read from
+ * standard input, answers are written to standard output.
+ *
+ * Supported commands: uci, isready, ucinewgame, setoption (Hash, Threads),
+ * position (startpos or fen, followed by moves), go (depth, movetime, nodes,
+ * wtime/btime/winc/binc/movestogo, infinite), stop and quit. An info line is
+ * sent after every completed iteration of the search.
+ *
+ * With more than one thread, helper searches run on the same position and
+ * share the transposition table (lazy SMP); the first thread's move is played.
+ *
+ * Anything the engine itself prints goes to standard error so that it can't
+ * corrupt the protocol.
+ *
+ * Usage: UciMain
+ */
+public class UciMain {
+
+	private static final String NAME = "Chess Game AI";
+	private static final String AUTHOR = "Chess Game Team";
+
+	private static final int DEFAULT_HASH_MB = 16;
+	private static final int MAX_HASH_MB = 1024;
+	private static final int MAX_THREADS = 64;
+
+	// Share of the remaining clock spent on one move when the GUI doesn't say how many are left
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+
+	private final PrintStream out;
+	private final TranspositionTable transpositionTable = TranspositionTable.allocate(DEFAULT_HASH_MB);
+	private int threads = 1;
+
+	// The position to search; it tracks the side to move
+	private final ChessBoard board = new ChessBoard();
+
+	// The running search: one thread per AI, the first one reports and decides
+	private final List<ChessAIAdvanced> searchers = new ArrayList<>();
+	private final List<Thread> searchThreads = new ArrayList<>();
+
+	public UciMain(PrintStream out) {
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException {
+		PrintStream protocol = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+		System.setOut(System.err);
+
+		UciMain uci = new UciMain(protocol);
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!uci.execute(line.trim())) {
+				break;
+			}
+		}
+		uci.stopSearch();
+	}
+
+	/**
+	 * Run one command.
+	 *
+	 * @return false once the engine should exit
+	 */
+	public boolean execute(String line) {
+		String[] tokens = line.split("\\s+");
+		switch (tokens[0]) {
+			case "uci":
+				out.println("id name " + NAME);
+				out.println("id author " + AUTHOR);
+				out.println("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+				out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+				out.println("uciok");
+				break;
+			case "isready":
+				out.println("readyok");
+				break;
+			case "ucinewgame":
+				stopSearch();
+				transpositionTable.clear();
+				break;
+			case "setoption":
+				stopSearch();
+				setOption(tokens);
+				break;
+			case "position":
+				stopSearch();
+				setPosition(tokens);
+				break;
+			case "go":
+				stopSearch();
+				go(tokens);
+				break;
+			case "stop":
+				stopSearch();
+				break;
+			case "quit":
+				return false;
+			default:
+				if (!tokens[0].isEmpty()) {
+					System.err.println("Unknown command: " + line);
+				}
+		}
+		return true;
+	}
+
+	// setoption name <name> value <value>
+	private void setOption(String[] tokens) {
+		String name = valueAfter(tokens, "name");
+		String value = valueAfter(tokens, "value");
+		if (name == null || value == null) {
+			return;
+		}
+		try {
+			if (name.equalsIgnoreCase("Hash")) {
+				transpositionTable.resize(clamp(Integer.parseInt(value), 1, MAX_HASH_MB));
+			} else if (name.equalsIgnoreCase("Threads")) {
+				threads = clamp(Integer.parseInt(value), 1, MAX_THREADS);
+			} else {
+				System.err.println("Unknown option: " + name);
+			}
+		} catch (NumberFormatException | IOException e) {
+			System.err.println("Error setting option " + name + ": " + e.getMessage());
+		}
+	}
+
+	// position startpos|fen <fen> [moves <move>...]
+	private void setPosition(String[] tokens) {
+		int index = 1;
+		String fen;
+		if (tokens.length > 1 && tokens[1].equals("fen")) {
+			StringBuilder builder = new StringBuilder();
+			for (index = 2; index < tokens.length && !tokens[index].equals("moves"); index++) {
+				builder.append(tokens[index]).append(' ');
+			}
+			fen = builder.toString().trim();
+		} else {
+			fen = ChessBoard.START_FEN;
+			index = 2;
+		}
+
+		try {
+			board.setFen(fen);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid position: " + e.getMessage());
+			return;
+		}
+
+		if (index < tokens.length && tokens[index].equals("moves")) {
+			for (index++; index < tokens.length; index++) {
+				ChessMove move = ChessMove.parse(tokens[index], board);
+				if (move == null || !board.isLegalMove(move, board.getSideToMove())) {
+					System.err.println("Illegal move: " + tokens[index]);
+					return;
+				}
+				board.applyMove(move);
+			}
+		}
+	}
+
+	// go [depth n] [movetime ms] [nodes n] [wtime ms] [btime ms] [winc ms] [binc ms] [movestogo n] [infinite]
+	private void go(String[] tokens) {
+		int depth = (int) longAfter(tokens, "depth", ChessAIAdvanced.MAX_SEARCH_DEPTH);
+		long nodes = longAfter(tokens, "nodes", 0);
+		long moveTime = longAfter(tokens, "movetime", 0);
+
+		ChessColor color = board.getSideToMove();
+		boolean white = color == ChessColor.WHITE;
+		long clock = longAfter(tokens, white ? "wtime" : "btime", 0);
+		if (moveTime == 0 && clock > 0) {
+			long increment = longAfter(tokens, white ? "winc" : "binc", 0);
+			long movesToGo = longAfter(tokens, "movestogo", DEFAULT_MOVES_TO_GO);
+			// Keep a margin for the GUI's overhead, and never spend more than half the clock
+			moveTime = Math.max(1, Math.min(clock / 2, clock / Math.max(1, movesToGo) + increment * 3 / 4 - 20));
+		}
+
+		ChessBoard position = new ChessBoard();
+		position.copyFrom(board);
+
+		for (int i = 0; i < threads; i++) {
+			ChessAIAdvanced ai = new ChessAIAdvanced();
+			ai.setTranspositionTable(transpositionTable);
+			if (i == 0) {
+				ai.setSearchDepth(depth);
+				ai.setNodeLimit(nodes);
+				ai.setTimeLimit(moveTime);
+				ai.addSearchListener(this::sendInfo);
+			} else {
+				// Helpers search on until the main search is done
+				ai.setSearchDepth(ChessAIAdvanced.MAX_SEARCH_DEPTH);
+			}
+			searchers.add(ai);
+		}
+
+		List<Thread> helpers = new ArrayList<>();
+		for (int i = 1; i < threads; i++) {
+			ChessAIAdvanced helper = searchers.get(i);
+			ChessBoard helperPosition = new ChessBoard();
+			helperPosition.copyFrom(position);
+			helpers.add(startThread("uci-helper-" + i, () -> helper.chooseMove(helperPosition, color)));
+		}
+		ChessAIAdvanced main = searchers.get(0);
+		List<ChessAIAdvanced> helperAIs = new ArrayList<>(searchers.subList(1, searchers.size()));
+		startThread("uci-search", () -> {
+			ChessMove best = main.chooseMove(position, color);
+			awaitStopped(helpers, helperAIs);
+			out.println("bestmove " + (best != null ? best.toString() : "0000"));
+		});
+	}
+
+	private Thread startThread(String name, Runnable task) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		searchThreads.add(thread);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Stop the running search, if any, and wait until its best move has been sent.
+	 */
+	private void stopSearch() {
+		awaitStopped(searchThreads, searchers);
+		searchThreads.clear();
+		searchers.clear();
+	}
+
+	/**
+	 * Stop searches and wait for their threads to end. A stop can arrive before
+	 * a search has started, so it is repeated until the thread is gone.
+	 */
+	private static void awaitStopped(List<Thread> threads, List<ChessAIAdvanced> searches) {
+		try {
+			for (Thread thread : threads) {
+				while (thread.isAlive()) {
+					for (ChessAIAdvanced ai : searches) {
+						ai.stop();
+					}
+					thread.join(10);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sendInfo(SearchInfo info) {
+		StringBuilder line = new StringBuilder("info");
+		line.append(" depth ").append(info.getDepth());
+		line.append(" seldepth ").append(info.getSelDepth());
+		int mateIn = info.getMateInMoves();
+		if (mateIn != 0) {
+			line.append(" score mate ").append(mateIn);
+		} else {
+			line.append(" score cp ").append(info.getScore());
+		}
+		line.append(" nodes ").append(info.getNodes());
+		line.append(" nps ").append(info.getNodesPerSecond());
+		line.append(" hashfull ").append((int) (transpositionTable.getFill() * 1000));
+		line.append(" time ").append(info.getTimeMillis());
+		line.append(" pv");
+		for (ChessMove move : info.getPrincipalVariation()) {
+			line.append(' ').append(move);
+		}
+		out.println(line);
+	}
+
+	private static String valueAfter(String[] tokens, String key) {
+		for (int i = 0; i < tokens.length - 1; i++) {
+			if (tokens[i].equals(key)) {
+				// Option names and values may contain spaces
+				StringBuilder value = new StringBuilder(tokens[i + 1]);
+				for (int j = i + 2; j < tokens.length && !tokens[j].equals("value"); j++) {
+					value.append(' ').append(tokens[j]);
+				}
+				return value.toString();
+			}
+		}
+		return null;
+	}
+
+	private static long longAfter(String[] tokens, String key, long defaultValue) {
+		for (int i = 0; i < tokens.length - 1; i++) {
+			if (tokens[i].equals(key)) {
+				try {
+					return Long.parseLong(tokens[i + 1]);
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid " + key + ": " + tokens[i + 1]);
+				}
+			}
+		}
+		return defaultValue;
+	}
+
+	private static int clamp(int value, int min, int max) {
+		return Math.max(min, Math.min(value, max));
+	}
+}